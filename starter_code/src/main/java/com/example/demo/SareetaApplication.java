@@ -2,23 +2,34 @@ package com.example.demo;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import com.example.demo.security.BoundedBCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
 @SpringBootApplication
+@EnableRetry
 public class SareetaApplication {
 
 	private static final Logger log = LogManager.getLogger(SareetaApplication.class);
 
-	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder(){
-		return new BCryptPasswordEncoder();
+	@Bean(destroyMethod = "shutdown")
+	public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${app.password.bcrypt-strength:10}") int strength,
+			@Value("${app.password.pool-size:0}") int poolSize,
+			@Value("${app.password.queue-capacity:32}") int queueCapacity,
+			MeterRegistry meterRegistry) {
+		int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+		return new BoundedBCryptPasswordEncoder(strength, threads, queueCapacity, meterRegistry);
 	}
 
 	public static void main(String[] args) {
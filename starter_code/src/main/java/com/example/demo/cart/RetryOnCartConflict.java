@@ -0,0 +1,26 @@
+package com.example.demo.cart;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+/**
+ * Retries a cart write that lost a race with another write to the same cart, up to
+ * {@code app.cart.retry.max-attempts} times with a short randomised exponential backoff starting
+ * at {@code app.cart.retry.delay-ms}. The method has to re-read the cart on every attempt. Only
+ * {@link ConcurrencyFailureException}s are retried; other data access errors are real failures.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Retryable(include = ConcurrencyFailureException.class,
+		maxAttemptsExpression = "${app.cart.retry.max-attempts:5}",
+		backoff = @Backoff(delayExpression = "${app.cart.retry.delay-ms:5}", multiplier = 2, random = true))
+public @interface RetryOnCartConflict {
+}
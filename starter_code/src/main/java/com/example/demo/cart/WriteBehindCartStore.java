@@ -0,0 +1,237 @@
+package com.example.demo.cart;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.repositories.CartRepository;
+
+/**
+ * Keeps active carts in memory and persists them in the background. Each cart is guarded by one
+ * of a fixed set of striped locks, so concurrent changes to the same cart are serialized while
+ * different carts rarely contend. Changed carts are marked dirty; a flusher thread snapshots
+ * them under their lock and writes the snapshots in batched transactions. Flushes never overlap,
+ * so two transactions cannot both insert the same new cart line. Everything still dirty is
+ * flushed on shutdown.
+ *
+ * <p>The store assumes it is the only writer of cart contents, which holds for a single
+ * application instance with {@code app.cart.write-behind.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartStore {
+
+	private static final Logger log = LogManager.getLogger(WriteBehindCartStore.class);
+
+	private static final int STRIPES = 64;
+
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+	private final CartRepository cartRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final Duration flushInterval;
+	private final int batchSize;
+	private final Duration idleTimeout;
+
+	private ScheduledExecutorService flusher;
+
+	public WriteBehindCartStore(CartRepository cartRepository, PlatformTransactionManager transactionManager,
+			@Value("${app.cart.write-behind.flush-interval:500ms}") Duration flushInterval,
+			@Value("${app.cart.write-behind.batch-size:100}") int batchSize,
+			@Value("${app.cart.write-behind.idle-timeout:10m}") Duration idleTimeout) {
+		this.cartRepository = cartRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.flushInterval = flushInterval;
+		this.batchSize = batchSize;
+		this.idleTimeout = idleTimeout;
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cart-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = flushInterval.toMillis();
+		flusher.scheduleWithFixedDelay(this::flushAndEvict, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		flusher.shutdown();
+		flusher.awaitTermination(30, TimeUnit.SECONDS);
+		flush();
+		log.info("Cart store flushed on shutdown, {} carts left dirty", dirty.size());
+	}
+
+	/**
+	 * Applies {@code change} to the in-memory copy of {@code cart}, loading it from {@code cart}
+	 * on first use, and returns a snapshot of the result. The change is made on a snapshot and only
+	 * copied back if it completes, so a change that throws part way leaves the cart as it was.
+	 */
+	public Cart update(Cart cart, Consumer<Cart> change) {
+		return withCart(cart, live -> {
+			Cart changed = Cart.copyOf(live);
+			change.accept(changed);
+			live.copyContentsFrom(changed);
+			dirty.add(live.getId());
+			return changed;
+		});
+	}
+
+	/**
+	 * Runs {@code reader} against the latest in-memory state of {@code cart} while holding its lock.
+	 */
+	public <T> T read(Cart cart, Function<Cart, T> reader) {
+		return withCart(cart, reader);
+	}
+
+	public int size() {
+		return carts.size();
+	}
+
+	public int dirtyCount() {
+		return dirty.size();
+	}
+
+	/**
+	 * Writes every dirty cart, one transaction per batch. Waits for a flush already running.
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			while (!dirty.isEmpty()) {
+				if (!flushBatch()) {
+					return;
+				}
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private <T> T withCart(Cart cart, Function<Cart, T> action) {
+		ReentrantLock lock = lockFor(cart.getId());
+		lock.lock();
+		try {
+			Entry entry = carts.computeIfAbsent(cart.getId(), id -> new Entry(Cart.copyOf(cart)));
+			entry.lastAccess = System.nanoTime();
+			return action.apply(entry.cart);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void flushAndEvict() {
+		try {
+			flush();
+			evictIdle();
+		} catch (RuntimeException e) {
+			log.error("Cart flush failed: {}", e.getMessage());
+		}
+	}
+
+	private boolean flushBatch() {
+		Map<Long, Cart> snapshots = new LinkedHashMap<>();
+		Iterator<Long> ids = dirty.iterator();
+		while (ids.hasNext() && snapshots.size() < batchSize) {
+			Long id = ids.next();
+			ReentrantLock lock = lockFor(id);
+			lock.lock();
+			try {
+				// Cleared under the lock, so a change made after the snapshot marks the cart dirty again.
+				dirty.remove(id);
+				Entry entry = carts.get(id);
+				if (entry != null) {
+					snapshots.put(id, Cart.copyOf(entry.cart));
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (snapshots.isEmpty()) {
+			return !dirty.isEmpty();
+		}
+		try {
+			transactionTemplate.execute(status -> {
+				for (Cart managed : cartRepository.findAllById(snapshots.keySet())) {
+					managed.copyContentsFrom(snapshots.get(managed.getId()));
+				}
+				return null;
+			});
+			log.debug("Flushed {} carts", snapshots.size());
+			return true;
+		} catch (RuntimeException e) {
+			dirty.addAll(snapshots.keySet());
+			throw e;
+		}
+	}
+
+	private void evictIdle() {
+		long cutoff = System.nanoTime() - idleTimeout.toNanos();
+		List<Long> idle = new ArrayList<>();
+		carts.forEach((id, entry) -> {
+			if (entry.lastAccess - cutoff < 0) {
+				idle.add(id);
+			}
+		});
+		for (Long id : idle) {
+			ReentrantLock lock = lockFor(id);
+			lock.lock();
+			try {
+				Entry entry = carts.get(id);
+				if (entry != null && entry.lastAccess - cutoff < 0 && !dirty.contains(id)) {
+					carts.remove(id);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private ReentrantLock lockFor(Long cartId) {
+		int hash = cartId.hashCode();
+		hash ^= hash >>> 16;
+		return locks[hash & (STRIPES - 1)];
+	}
+
+	private static final class Entry {
+		private final Cart cart;
+		private volatile long lastAccess;
+
+		Entry(Cart cart) {
+			this.cart = cart;
+			this.lastAccess = System.nanoTime();
+		}
+	}
+}
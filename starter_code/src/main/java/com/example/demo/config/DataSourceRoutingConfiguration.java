@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.demo.datasource.DataSourceRoute;
+import com.example.demo.datasource.RecentWriters;
+import com.example.demo.datasource.ReplicaRoutingInterceptor;
+import com.example.demo.datasource.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Splits the application's connections between the primary ({@code spring.datasource.*}) and a
+ * read replica ({@code app.datasource.replica.*}). Requests to handlers marked
+ * {@link com.example.demo.datasource.ReplicaRead} read from the replica; all other work, including
+ * schema updates and background jobs, uses the primary. Replica connections are opened read-only.
+ *
+ * <p>The two pools are not beans: Boot's schema initializer runs for every {@code DataSource} bean
+ * and needs the routing one, which would still be in creation.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfiguration implements WebMvcConfigurer {
+
+	@Value("${app.datasource.read-your-writes.window:5s}")
+	private Duration readYourWritesWindow;
+
+	@Value("${app.datasource.read-your-writes.maximum-size:100000}")
+	private long readYourWritesMaximumSize;
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties properties, Environment environment,
+			@Value("${app.datasource.replica.url}") String replicaUrl,
+			@Value("${app.datasource.replica.username:}") String replicaUsername,
+			@Value("${app.datasource.replica.password:}") String replicaPassword) {
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		pools.add(primary);
+		HikariDataSource replica = DataSourceBuilder.create()
+				.type(HikariDataSource.class)
+				.url(replicaUrl)
+				.username(replicaUsername)
+				.password(replicaPassword)
+				.build();
+		Binder.get(environment).bind("app.datasource.replica.hikari", Bindable.ofInstance(replica));
+		replica.setReadOnly(true);
+		pools.add(replica);
+
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(DataSourceRoute.PRIMARY, primary);
+		targets.put(DataSourceRoute.REPLICA, replica);
+		RoutingDataSource routing = new RoutingDataSource();
+		routing.setTargetDataSources(targets);
+		routing.setDefaultTargetDataSource(primary);
+		routing.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+
+	@PreDestroy
+	public void closePools() {
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@Bean
+	public RecentWriters recentWriters() {
+		return new RecentWriters(readYourWritesWindow, readYourWritesMaximumSize);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new ReplicaRoutingInterceptor(recentWriters())).addPathPatterns("/api/**");
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.demo.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Bounded, TTL-evicting Caffeine regions for Hibernate's second-level cache: items by id, and the
+ * query cache behind
+ * {@link com.example.demo.model.persistence.repositories.ItemRepository#findByName}. Hibernate
+ * invalidates them on every item write it performs, after the transaction commits. Hit and miss
+ * counts are published as {@code hibernate.second.level.cache.*} and {@code hibernate.cache.query.*}
+ * meters by Boot's Hibernate metrics; per-region counts are in Hibernate's {@code Statistics}.
+ *
+ * <p>Only the regions created here exist; an entity or query naming any other region fails at
+ * startup instead of getting an unbounded cache.
+ */
+@Configuration
+public class ItemCacheConfiguration {
+
+	public static final String ITEM_REGION = "item";
+	public static final String ITEMS_BY_NAME_REGION = "itemsByName";
+
+	// Each application context gets its own manager, so contexts sharing a JVM do not share regions.
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager(@Value("${app.item-cache.maximum-size:10000}") long maximumSize,
+			@Value("${app.item-cache.ttl:10m}") Duration ttl) {
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+		cacheManager.createCache(ITEM_REGION, bounded(maximumSize, ttl));
+		cacheManager.createCache(ITEMS_BY_NAME_REGION, bounded(maximumSize, ttl));
+		cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded(maximumSize, ttl));
+		// Holds one last-write time per table. It must never lose an entry, or a stale query
+		// result could be taken as current, so it is neither bounded nor expired.
+		cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+				new CaffeineConfiguration<>());
+		return cacheManager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+
+	private static CaffeineConfiguration<Object, Object> bounded(long maximumSize, Duration ttl) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setMaximumSize(OptionalLong.of(maximumSize));
+		configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+		return configuration;
+	}
+}
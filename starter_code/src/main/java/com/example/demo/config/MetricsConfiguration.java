@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import java.lang.reflect.Method;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.demo.metrics.RepositoryMetricsInterceptor;
+import com.example.demo.metrics.RequestMetricsInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Wires request and repository timing into Spring MVC and the repository proxies. The meters are
+ * published by the actuator at {@code /actuator/prometheus}.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+	private final RequestMetricsInterceptor requestMetricsInterceptor;
+
+	public MetricsConfiguration(RequestMetricsInterceptor requestMetricsInterceptor) {
+		this.requestMetricsInterceptor = requestMetricsInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(requestMetricsInterceptor).addPathPatterns("/api/**");
+	}
+
+	// Static, and the registry resolved on first use: advisors are created while other beans are
+	// still being proxied, and neither this class nor the registry should be built that early.
+	@Bean
+	public static Advisor repositoryMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+		return new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return targetClass != null && Repository.class.isAssignableFrom(targetClass)
+						&& method.getDeclaringClass() != Object.class;
+			}
+		}, new RepositoryMetricsInterceptor(meterRegistry));
+	}
+}
@@ -0,0 +1,200 @@
+package com.example.demo.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.demo.datasource.CatalogReplicator;
+import com.example.demo.datasource.MappingMetadataCapture;
+import com.example.demo.datasource.ShardAssignmentStore;
+import com.example.demo.datasource.ShardMap;
+import com.example.demo.datasource.ShardRebalancer;
+import com.example.demo.datasource.ShardRoutingInterceptor;
+import com.example.demo.datasource.ShardSchemaInitializer;
+import com.example.demo.datasource.ShardingDataSource;
+import com.example.demo.datasource.ShardsEndpoint;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Spreads users, carts and orders over several databases by username. Shard 0 is
+ * {@code spring.datasource.*}; each {@code app.datasource.sharding.shards[i]} entry, with its own
+ * {@code url}, {@code username} and {@code password}, adds one more. Every shard holds a copy of the
+ * item catalog. See {@link ShardMap} for how users are assigned and {@link ShardsEndpoint} for
+ * moving them.
+ *
+ * <p>Cannot be combined with the read replica, write-behind carts or asynchronous orders: those
+ * assume a single database, and the last two write from background threads that belong to no
+ * request, and so to no shard.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+	private static final String[] SINGLE_DATABASE_FEATURES = {
+			"app.datasource.routing.enabled", "app.cart.write-behind.enabled", "app.order.async.enabled" };
+
+	private final Environment environment;
+	private final List<ShardProperties> shards;
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	public ShardingConfiguration(Environment environment) {
+		this.environment = environment;
+		for (String feature : SINGLE_DATABASE_FEATURES) {
+			if (environment.getProperty(feature, Boolean.class, false)) {
+				throw new IllegalStateException("app.datasource.sharding.enabled cannot be combined with " + feature);
+			}
+		}
+		this.shards = Binder.get(environment)
+				.bind("app.datasource.sharding.shards", Bindable.listOf(ShardProperties.class))
+				.orElse(Collections.emptyList());
+	}
+
+	// The shard pools are not beans: Boot's schema initializer runs for every DataSource bean and
+	// needs this one, which would still be in creation.
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties properties) {
+		HikariDataSource shard0 = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(shard0));
+		pools.add(shard0);
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(0, shard0);
+		for (int i = 0; i < shards.size(); i++) {
+			ShardProperties shard = shards.get(i);
+			HikariDataSource pool = DataSourceBuilder.create()
+					.type(HikariDataSource.class)
+					.url(shard.getUrl())
+					.username(shard.getUsername())
+					.password(shard.getPassword())
+					.build();
+			pool.setPoolName("shard" + (i + 1));
+			pools.add(pool);
+			targets.put(i + 1, pool);
+		}
+		ShardingDataSource sharding = new ShardingDataSource();
+		sharding.setTargetDataSources(targets);
+		sharding.setLenientFallback(false);
+		sharding.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(sharding);
+	}
+
+	@PreDestroy
+	public void closeShards() {
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@Bean
+	public ShardMap shardMap(ShardAssignmentStore shardAssignmentStore) {
+		ShardMap shardMap = new ShardMap(shards.size() + 1);
+		shardAssignmentStore.load(shardMap);
+		return shardMap;
+	}
+
+	@Bean
+	public ShardAssignmentStore shardAssignmentStore(JdbcTemplate jdbcTemplate) {
+		return new ShardAssignmentStore(jdbcTemplate);
+	}
+
+	@Bean
+	public MappingMetadataCapture mappingMetadataCapture() {
+		return new MappingMetadataCapture();
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer shardMappingCapture(MappingMetadataCapture capture) {
+		return properties -> properties.put("hibernate.integrator_provider",
+				(IntegratorProvider) () -> Collections.singletonList(capture));
+	}
+
+	@Bean
+	public CatalogReplicator catalogReplicator(ShardMap shardMap, JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager) {
+		return new CatalogReplicator(shardMap, jdbcTemplate, new TransactionTemplate(transactionManager));
+	}
+
+	@Bean
+	public ShardSchemaInitializer shardSchemaInitializer(ShardMap shardMap, MappingMetadataCapture capture,
+			CatalogReplicator catalogReplicator, JdbcTemplate jdbcTemplate,
+			@Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+		boolean updateSchema = !"none".equals(ddlAuto) && !"validate".equals(ddlAuto);
+		return new ShardSchemaInitializer(shardMap, capture, catalogReplicator, jdbcTemplate, updateSchema);
+	}
+
+	@Bean
+	public ShardRebalancer shardRebalancer(ShardMap shardMap, ShardAssignmentStore shardAssignmentStore,
+			JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+		return new ShardRebalancer(shardMap, shardAssignmentStore, jdbcTemplate,
+				new TransactionTemplate(transactionManager));
+	}
+
+	@Bean
+	public ShardsEndpoint shardsEndpoint(ShardMap shardMap, ShardRebalancer shardRebalancer,
+			CatalogReplicator catalogReplicator) {
+		return new ShardsEndpoint(shardMap, shardRebalancer, catalogReplicator);
+	}
+
+	@Bean
+	public WebMvcConfigurer shardRoutingConfigurer(ShardMap shardMap) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(new ShardRoutingInterceptor(shardMap)).addPathPatterns("/api/**");
+			}
+		};
+	}
+
+	public static class ShardProperties {
+
+		private String url;
+		private String username;
+		private String password;
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		public void setUsername(String username) {
+			this.username = username;
+		}
+
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
+	}
+}
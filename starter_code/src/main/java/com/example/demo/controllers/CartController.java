@@ -1,26 +1,46 @@
 package com.example.demo.controllers;
 
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cart.RetryOnCartConflict;
+import com.example.demo.cart.WriteBehindCartStore;
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.security.CurrentUserLookup;
 
+/**
+ * Cart writes are checked against {@code Cart.version}. A write that loses a race with another
+ * write to the same cart is retried from a fresh read (see {@link RetryOnCartConflict}) and
+ * answered with 409 Conflict if it keeps losing.
+ */
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
@@ -28,7 +48,7 @@ public class CartController {
 	//private static final Logger logger = LoggerFactory.getLogger(CartController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
+	private CurrentUserLookup currentUserLookup;
 	
 	@Autowired
 	private CartRepository cartRepository;
@@ -36,11 +56,25 @@ public class CartController {
 	@Autowired
 	private ItemRepository itemRepository;
 
+	@Autowired(required = false)
+	private WriteBehindCartStore writeBehindCartStore;
+
+	@GetMapping("/{username}")
+	public ResponseEntity<Cart> getCart(@PathVariable String username) {
+		Cart cart = currentUserLookup.findCart(username);
+		if (cart == null) {
+			//logger.error("User {} not found", username);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		return ResponseEntity.ok(writeBehindCartStore != null ? writeBehindCartStore.read(cart, Cart::copyOf) : cart);
+	}
+
+	@RetryOnCartConflict
 	@PostMapping("/addToCart")
 	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
 		//logger.info("Request to add to cart: {}", request);
-		User user = userRepository.findByUsername(request.getUsername());
-		if (user == null) {
+		Cart userCart = currentUserLookup.findCart(request.getUsername());
+		if (userCart == null) {
 			//logger.error("User {} not found", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
@@ -49,18 +83,17 @@ public class CartController {
 			//logger.error("Item {} not found", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity()).forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
+		Cart cart = updateCart(userCart, c -> c.addItem(item.get(), request.getQuantity()));
 		//logger.info("Item {} added to cart", request.getItemId());
 		return ResponseEntity.ok(cart);
 	}
 
+	@RetryOnCartConflict
 	@PostMapping("/removeFromCart")
 	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
 		//logger.info("Request to remove from cart: {}", request);
-		User user = userRepository.findByUsername(request.getUsername());
-		if (user == null) {
+		Cart userCart = currentUserLookup.findCart(request.getUsername());
+		if (userCart == null) {
 			//logger.error("User {} not found", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
@@ -69,11 +102,96 @@ public class CartController {
 			//logger.error("Item {} not found", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity()).forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
+		Cart cart = updateCart(userCart, c -> c.removeItem(item.get(), request.getQuantity()));
 		//logger.info("Item {} removed from cart", request.getItemId());
 		return ResponseEntity.ok(cart);
 	}
-		
+
+	/**
+	 * Applies many quantity changes to a cart with one item lookup and one save. Changes to the
+	 * same item are netted first, then applied in request order in one transaction: the whole
+	 * batch is rejected if any item does not exist, and none of it is kept if any change fails.
+	 * Each retry runs in a fresh transaction, since the retry advice is applied outside it.
+	 */
+	@RetryOnCartConflict
+	@Transactional
+	@PostMapping("/batch")
+	public ResponseEntity<Cart> modifyCart(@RequestBody BatchModifyCartRequest request) {
+		if (request.getOperations() == null || request.getOperations().contains(null)) {
+			//logger.error("Batch for user {} has no operations list", request.getUsername());
+			return ResponseEntity.badRequest().build();
+		}
+		//logger.info("Request to apply {} changes to cart", request.getOperations().size());
+		Cart userCart = currentUserLookup.findCart(request.getUsername());
+		if (userCart == null) {
+			//logger.error("User {} not found", request.getUsername());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		Map<Long, Integer> deltas = new LinkedHashMap<>();
+		for (BatchModifyCartRequest.CartOperation operation : request.getOperations()) {
+			deltas.merge(operation.getItemId(), operation.getQuantity(), Math::addExact);
+		}
+		Map<Long, Item> items = itemRepository.findAllById(deltas.keySet()).stream()
+				.collect(Collectors.toMap(Item::getId, Function.identity()));
+		if (items.size() != deltas.size()) {
+			//logger.error("Some of items {} not found", deltas.keySet());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		Cart cart = updateCart(userCart, c -> {
+			for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+				Item item = items.get(delta.getKey());
+				if (delta.getValue() > 0) {
+					c.addItem(item, delta.getValue());
+				} else {
+					c.removeItem(item, -delta.getValue());
+				}
+			}
+		});
+		//logger.info("{} changes applied to cart", deltas.size());
+		return ResponseEntity.ok(cart);
+	}
+
+	@ExceptionHandler(ConcurrencyFailureException.class)
+	public ResponseEntity<Cart> onConflict(ConcurrencyFailureException e) {
+		//logger.error("Cart update kept conflicting: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.CONFLICT).build();
+	}
+
+	@ExceptionHandler(ArithmeticException.class)
+	public ResponseEntity<Cart> onQuantityOverflow(ArithmeticException e) {
+		//logger.error("Cart quantity out of range: {}", e.getMessage());
+		return ResponseEntity.badRequest().build();
+	}
+
+	// With the write-behind store enabled the change is applied to the in-memory cart and
+	// persisted by its flusher; otherwise the cart is saved and flushed right away, so a conflict
+	// surfaces here even inside the batch transaction.
+	private Cart updateCart(Cart cart, Consumer<Cart> change) {
+		if (writeBehindCartStore != null) {
+			return writeBehindCartStore.update(cart, change);
+		}
+		change.accept(cart);
+		try {
+			cartRepository.saveAndFlush(cart);
+		} catch (DataIntegrityViolationException e) {
+			throw duplicateLineAsConflict(e);
+		}
+		return cart;
+	}
+
+	// Two requests adding the same new item to a cart both insert its line, and the later insert
+	// hits the (cart_id, item_id) key. That is a lost race like a version conflict and is retried as
+	// one; any other integrity violation is a real error.
+	private static RuntimeException duplicateLineAsConflict(DataIntegrityViolationException e) {
+		for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConstraintViolationException) {
+				String constraint = ((ConstraintViolationException) cause).getConstraintName();
+				if (constraint != null && constraint.toLowerCase(Locale.ROOT).contains(CartLine.CART_ITEM_KEY)) {
+					return new ConcurrencyFailureException("Cart line was added concurrently", e);
+				}
+			}
+		}
+		return e;
+	}
+
 }
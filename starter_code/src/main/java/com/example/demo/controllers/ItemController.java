@@ -5,28 +5,91 @@ import java.util.List;
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.datasource.ReplicaRead;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/item")
+@ReplicaRead
 public class ItemController {
 
 	//private static final Logger logger = LoggerFactory.getLogger(ItemController.class);
 
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	public static final int MAX_PAGE_SIZE = 500;
+	static final int STREAM_BATCH_SIZE = 500;
+
 	@Autowired
 	private ItemRepository itemRepository;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	/**
+	 * Keyset-paginated catalog listing. Returns at most {@code size} items with an id greater
+	 * than {@code after}; when more items follow, the id to pass as the next {@code after}
+	 * is returned in the {@value #NEXT_CURSOR_HEADER} header.
+	 */
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		//logger.info("Fetching all items");
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<List<Item>> getItems(@RequestParam(value = "after", defaultValue = "0") long after,
+			@RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+		//logger.info("Fetching items after {} (size {})", after, size);
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<Item> items = itemRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize + 1));
+		if (items.size() <= pageSize) {
+			return ResponseEntity.ok(items);
+		}
+		List<Item> page = items.subList(0, pageSize);
+		return ResponseEntity.ok()
+				.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(pageSize - 1).getId()))
+				.body(page);
+	}
+
+	/**
+	 * Streams the whole catalog as a JSON array, writing each keyset batch to the response
+	 * as soon as it is read so memory use does not grow with the size of the catalog.
+	 */
+	@GetMapping(params = "stream=true")
+	public ResponseEntity<StreamingResponseBody> streamItems() {
+		//logger.info("Streaming all items");
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(out -> {
+					JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+					generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+					generator.writeStartArray();
+					long after = 0;
+					List<Item> batch;
+					do {
+						batch = itemRepository.findDetachedByIdGreaterThan(after, PageRequest.of(0, STREAM_BATCH_SIZE));
+						for (Item item : batch) {
+							generator.writeObject(item);
+							after = item.getId();
+						}
+						generator.flush();
+					} while (batch.size() == STREAM_BATCH_SIZE);
+					generator.writeEndArray();
+					generator.close();
+				});
 	}
 
 	@GetMapping("/{id}")
@@ -43,4 +106,26 @@ public class ItemController {
 				: ResponseEntity.ok(items);
 	}
 
+	/**
+	 * Ranked word and prefix search over item names and descriptions, served from
+	 * {@link ItemSearchIndex}. The total number of matches is returned in the
+	 * {@value #TOTAL_COUNT_HEADER} header. A query with a token shorter than two characters is
+	 * rejected with 400, since it cannot be matched as a prefix.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam("q") String query,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+		//logger.info("Searching items for: {}", query);
+		if (!ItemSearchIndex.isSearchable(query)) {
+			return ResponseEntity.badRequest().build();
+		}
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		int pageNumber = Math.max(0, Math.min(page, Integer.MAX_VALUE / MAX_PAGE_SIZE));
+		ItemSearchIndex.SearchResult result = itemSearchIndex.search(query, pageNumber, pageSize);
+		return ResponseEntity.ok()
+				.header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotal()))
+				.body(result.getItems());
+	}
+
 }
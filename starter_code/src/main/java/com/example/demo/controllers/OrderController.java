@@ -1,21 +1,35 @@
 package com.example.demo.controllers;
 
+import java.security.Principal;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.demo.model.persistence.User;
+import com.example.demo.cart.WriteBehindCartStore;
+import com.example.demo.datasource.ReplicaRead;
+import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.order.OrderIdempotencyRegistry;
+import com.example.demo.order.OrderSubmissionPipeline;
+import com.example.demo.order.OrderSummary;
+import com.example.demo.order.OrderTicket;
+import com.example.demo.security.CurrentUserLookup;
 
 @RestController
 @RequestMapping("/api/order")
@@ -23,40 +37,226 @@ public class OrderController {
 
 	private static final Logger log = LogManager.getLogger(OrderController.class);
 
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	public static final int DEFAULT_PAGE_SIZE = 20;
+	public static final int MAX_PAGE_SIZE = 100;
+
 	@Autowired
-	private UserRepository userRepository;
+	private CurrentUserLookup currentUserLookup;
 
 	@Autowired
 	private OrderRepository orderRepository;
 
+	@Autowired(required = false)
+	private WriteBehindCartStore writeBehindCartStore;
+
+	@Autowired(required = false)
+	private OrderSubmissionPipeline orderSubmissionPipeline;
+
+	@Autowired(required = false)
+	private OrderIdempotencyRegistry orderIdempotencyRegistry;
+
+	/**
+	 * Places an order from the user's cart. A client that may retry sends an
+	 * {@value #IDEMPOTENCY_KEY_HEADER} header; a repeat of the same key for the same user within
+	 * {@code app.order.idempotency.window} is answered with the original order, or 409 Conflict
+	 * while the first attempt is still running.
+	 */
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
+	public ResponseEntity<UserOrder> submit(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 		log.info("Submitting order for user: {}", username);
-		User user = userRepository.findByUsername(username);
-		if (user == null) {
+		if (idempotencyKey != null && !OrderIdempotencyRegistry.isValidKey(idempotencyKey)) {
+			log.warn("Order submission failed: invalid idempotency key for user {}", username);
+			return ResponseEntity.badRequest().build();
+		}
+		Cart cart = currentUserLookup.findCart(username);
+		if (cart == null) {
 			log.warn("Order submission failed: User with username {} not found", username);
 			return ResponseEntity.notFound().build();
 		}
+		OrderIdempotencyRegistry.Outcome previous = reserve(username, idempotencyKey);
+		if (previous != null) {
+			log.info("Repeated submission for user {} with idempotency key {}", username, idempotencyKey);
+			UserOrder order = previous.isInProgress() ? null : orderRepository.findByReference(previous.getReference());
+			return order != null ? ResponseEntity.ok(order) : ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
 		try {
-			UserOrder order = UserOrder.createFromCart(user.getCart());
+			UserOrder order = createOrder(cart);
 			orderRepository.save(order);
+			complete(username, idempotencyKey, order);
 			log.info("Order for user {} submitted successfully", username);
 			return ResponseEntity.ok(order);
 		} catch (Exception e) {
 			log.error("Exception occurred while submitting order for user {}: {}", username, e.getMessage());
+			release(username, idempotencyKey);
 			throw e;
 		}
 	}
 
+	/**
+	 * Asynchronous checkout, chosen by sending {@code Prefer: respond-async}. The order is queued
+	 * for writing and answered with 202 and a ticket to poll at {@code /api/order/status/{reference}}.
+	 * An idempotency key stays in progress (409 on repeat) until the order is written, and is freed
+	 * again if the write fails. Without the async pipeline enabled the preference is ignored and the
+	 * order is written inline.
+	 */
+	@PostMapping(value = "/submit/{username}", headers = "Prefer=respond-async")
+	public ResponseEntity<?> submitAsync(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		if (orderSubmissionPipeline == null) {
+			return submit(username, idempotencyKey);
+		}
+		log.info("Queueing order for user: {}", username);
+		if (idempotencyKey != null && !OrderIdempotencyRegistry.isValidKey(idempotencyKey)) {
+			log.warn("Order submission failed: invalid idempotency key for user {}", username);
+			return ResponseEntity.badRequest().build();
+		}
+		Cart cart = currentUserLookup.findCart(username);
+		if (cart == null) {
+			log.warn("Order submission failed: User with username {} not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		OrderIdempotencyRegistry.Outcome previous = reserve(username, idempotencyKey);
+		if (previous != null) {
+			log.info("Repeated submission for user {} with idempotency key {}", username, idempotencyKey);
+			if (previous.isInProgress()) {
+				return ResponseEntity.status(HttpStatus.CONFLICT).build();
+			}
+			return accepted(findTicket(previous.getReference()), previous.getReference());
+		}
+		UserOrder order = createOrder(cart);
+		OrderTicket ticket = orderSubmissionPipeline.submit(order, username, idempotencyKey);
+		if (ticket == null) {
+			log.warn("Order submission for user {} rejected: queue full", username);
+			release(username, idempotencyKey);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+		}
+		log.info("Order {} for user {} queued", ticket.getReference(), username);
+		return accepted(ticket, ticket.getReference());
+	}
+
+	/**
+	 * Status of one of the caller's orders. Another user's order is answered with 404, as if it
+	 * did not exist.
+	 */
+	@GetMapping("/status/{reference}")
+	public ResponseEntity<OrderTicket> getOrderStatus(@PathVariable String reference, Principal principal) {
+		OrderTicket ticket = findTicket(reference);
+		if (ticket == null || principal == null || !principal.getName().equals(ticket.getUsername())) {
+			log.warn("Order status fetch failed: Order {} not found", reference);
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(ticket);
+	}
+
+	/**
+	 * One page of the user's orders, newest first. Pass the id from the
+	 * {@value ItemController#NEXT_CURSOR_HEADER} header as {@code before} to get the next page.
+	 */
+	@ReplicaRead
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
+	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username,
+			@RequestParam(value = "before", defaultValue = "" + Long.MAX_VALUE) long before,
+			@RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
 		log.info("Fetching order history for user: {}", username);
-		User user = userRepository.findByUsername(username);
-		if (user == null) {
+		Long userId = currentUserLookup.findUserId(username);
+		if (userId == null) {
 			log.warn("Order history fetch failed: User with username {} not found", username);
 			return ResponseEntity.notFound().build();
 		}
+		int pageSize = pageSize(size);
+		List<Long> ids = orderRepository.findIdsByUserId(userId, before, PageRequest.of(0, pageSize + 1));
+		List<UserOrder> orders = ids.isEmpty() ? Collections.emptyList()
+				: orderRepository.findDistinctByIdInOrderByIdDesc(ids);
 		log.info("Order history for user {} fetched successfully", username);
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		return page(orders, pageSize, UserOrder::getId);
+	}
+
+	/**
+	 * Same paging as {@link #getOrdersForUser}, but each order is summarised as id, reference,
+	 * total, line count and submit time, read without loading any lines or items.
+	 */
+	@ReplicaRead
+	@GetMapping(value = "/history/{username}", params = "view=summary")
+	public ResponseEntity<List<OrderSummary>> getOrderSummariesForUser(@PathVariable String username,
+			@RequestParam(value = "before", defaultValue = "" + Long.MAX_VALUE) long before,
+			@RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+		log.info("Fetching order summaries for user: {}", username);
+		Long userId = currentUserLookup.findUserId(username);
+		if (userId == null) {
+			log.warn("Order summary fetch failed: User with username {} not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		int pageSize = pageSize(size);
+		List<OrderSummary> summaries = orderRepository.findSummariesByUserId(userId, before,
+				PageRequest.of(0, pageSize + 1));
+		return page(summaries, pageSize, OrderSummary::getId);
+	}
+
+	@ReplicaRead
+	@GetMapping("/history/{username}/{id}")
+	public ResponseEntity<UserOrder> getOrderForUser(@PathVariable String username, @PathVariable Long id) {
+		log.info("Fetching order {} for user: {}", id, username);
+		Long userId = currentUserLookup.findUserId(username);
+		if (userId == null) {
+			log.warn("Order fetch failed: User with username {} not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.of(orderRepository.findByIdAndUserId(id, userId));
+	}
+
+	// Orders still in the async pipeline are answered from it, anything older from the database.
+	private OrderTicket findTicket(String reference) {
+		OrderTicket ticket = orderSubmissionPipeline == null ? null : orderSubmissionPipeline.status(reference);
+		if (ticket != null) {
+			return ticket;
+		}
+		UserOrder order = orderRepository.findByReference(reference);
+		return order == null ? null : OrderTicket.completed(reference, order.getId(), order.getUser().getUsername());
+	}
+
+	private UserOrder createOrder(Cart cart) {
+		return writeBehindCartStore != null
+				? writeBehindCartStore.read(cart, UserOrder::createFromCart)
+				: UserOrder.createFromCart(cart);
+	}
+
+	private OrderIdempotencyRegistry.Outcome reserve(String username, String idempotencyKey) {
+		return idempotencyKey == null || orderIdempotencyRegistry == null ? null
+				: orderIdempotencyRegistry.reserve(username, idempotencyKey);
+	}
+
+	private void complete(String username, String idempotencyKey, UserOrder order) {
+		if (idempotencyKey != null && orderIdempotencyRegistry != null) {
+			orderIdempotencyRegistry.complete(username, idempotencyKey, order);
+		}
+	}
+
+	private void release(String username, String idempotencyKey) {
+		if (idempotencyKey != null && orderIdempotencyRegistry != null) {
+			orderIdempotencyRegistry.release(username, idempotencyKey);
+		}
+	}
+
+	private static ResponseEntity<OrderTicket> accepted(OrderTicket ticket, String reference) {
+		return ResponseEntity.accepted()
+				.header(HttpHeaders.LOCATION, "/api/order/status/" + reference)
+				.body(ticket);
+	}
+
+	private static int pageSize(int size) {
+		return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+	}
+
+	// Rows were fetched with one extra to tell whether another page follows.
+	private static <T> ResponseEntity<List<T>> page(List<T> rows, int pageSize, Function<T, Long> id) {
+		if (rows.size() <= pageSize) {
+			return ResponseEntity.ok(rows);
+		}
+		List<T> page = rows.subList(0, pageSize);
+		return ResponseEntity.ok()
+				.header(ItemController.NEXT_CURSOR_HEADER, String.valueOf(id.apply(page.get(pageSize - 1))))
+				.body(page);
 	}
 }
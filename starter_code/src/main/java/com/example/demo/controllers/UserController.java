@@ -1,13 +1,17 @@
 package com.example.demo.controllers;
 
+import com.example.demo.datasource.ReplicaRead;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordHashingRejectedException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -27,12 +31,14 @@ public class UserController {
 	@Autowired
 	private BCryptPasswordEncoder bCryptPasswordEncoder;
 
+	@ReplicaRead
 	@GetMapping("/id/{id}")
 	public ResponseEntity<User> findById(@PathVariable Long id) {
 		log.info("Searching for user with id: {}", id);
 		return ResponseEntity.of(userRepository.findById(id));
 	}
 
+	@ReplicaRead
 	@GetMapping("/{username}")
 	public ResponseEntity<User> findByUserName(@PathVariable String username) {
 		log.info("Searching for user with username: {}", username);
@@ -68,4 +74,10 @@ public class UserController {
 			throw e;
 		}
 	}
+
+	@ExceptionHandler(PasswordHashingRejectedException.class)
+	public ResponseEntity<Void> onHashingRejected(PasswordHashingRejectedException e) {
+		log.warn("Rejected request: {}", e.getMessage());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+	}
 }
@@ -0,0 +1,58 @@
+package com.example.demo.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the item catalog identical on every shard, so cart lines and orders can reference items
+ * locally. Shard 0 holds the master copy: items are created and changed there, and
+ * {@link #replicate()} copies them, with their ids, to the other shards. Items are never deleted
+ * from a shard, since orders may still point at them.
+ */
+public class CatalogReplicator {
+
+	private static final Logger log = LogManager.getLogger(CatalogReplicator.class);
+
+	private static final String SELECT_ITEMS = "select id, name, price, description from item";
+	private static final String UPDATE_ITEM = "update item set name = ?, price = ?, description = ? where id = ?";
+	private static final String INSERT_ITEM = "insert into item (name, price, description, id) values (?, ?, ?, ?)";
+
+	private final ShardMap shardMap;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+
+	public CatalogReplicator(ShardMap shardMap, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+		this.shardMap = shardMap;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Copies every item on shard 0 to the other shards and returns the number of items copied.
+	 */
+	public int replicate() {
+		// Rows are bound in UPDATE_ITEM/INSERT_ITEM order, with the id last.
+		List<Object[]> items = ShardContext.call(0, () -> jdbcTemplate.query(SELECT_ITEMS,
+				(rs, row) -> new Object[]{rs.getString(2), rs.getBigDecimal(3), rs.getString(4), rs.getLong(1)}));
+		for (int shard = 1; shard < shardMap.shardCount(); shard++) {
+			ShardContext.run(shard, () -> transactionTemplate.execute(status -> {
+				int[] updated = jdbcTemplate.batchUpdate(UPDATE_ITEM, items);
+				List<Object[]> missing = new ArrayList<>();
+				for (int i = 0; i < updated.length; i++) {
+					if (updated[i] == 0) {
+						missing.add(items.get(i));
+					}
+				}
+				jdbcTemplate.batchUpdate(INSERT_ITEM, missing);
+				return null;
+			}));
+		}
+		log.info("Catalog of {} items copied to {} shards", items.size(), shardMap.shardCount() - 1);
+		return items.size();
+	}
+}
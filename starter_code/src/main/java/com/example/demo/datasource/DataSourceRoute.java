@@ -0,0 +1,25 @@
+package com.example.demo.datasource;
+
+/**
+ * The pool a connection is taken from. The route is held per thread and read when the first
+ * statement of a request needs a connection.
+ */
+public enum DataSourceRoute {
+
+	PRIMARY, REPLICA;
+
+	private static final ThreadLocal<DataSourceRoute> CURRENT = new ThreadLocal<>();
+
+	public static DataSourceRoute current() {
+		DataSourceRoute route = CURRENT.get();
+		return route == null ? PRIMARY : route;
+	}
+
+	static void use(DataSourceRoute route) {
+		CURRENT.set(route);
+	}
+
+	static void reset() {
+		CURRENT.remove();
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.demo.datasource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Keeps the mapping metadata Hibernate built the session factory from, so that
+ * {@link ShardSchemaInitializer} can apply the same schema to the other shards.
+ */
+public class MappingMetadataCapture implements Integrator {
+
+	private volatile Metadata metadata;
+	private volatile SessionFactoryServiceRegistry serviceRegistry;
+
+	@Override
+	public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+			SessionFactoryServiceRegistry serviceRegistry) {
+		this.metadata = metadata;
+		this.serviceRegistry = serviceRegistry;
+	}
+
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+	}
+
+	public Metadata getMetadata() {
+		return metadata;
+	}
+
+	public SessionFactoryServiceRegistry getServiceRegistry() {
+		return serviceRegistry;
+	}
+}
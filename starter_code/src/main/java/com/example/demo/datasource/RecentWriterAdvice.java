@@ -0,0 +1,70 @@
+package com.example.demo.datasource;
+
+import java.lang.reflect.Type;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.example.demo.model.requests.UserScopedRequest;
+
+/**
+ * Notes the username in request bodies that name one, such as sign-up and cart changes, and records
+ * a successful write's users in {@link RecentWriters} just before its response body is written,
+ * while the client cannot have the response yet. See {@link ReplicaRoutingInterceptor}.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class RecentWriterAdvice extends RequestBodyAdviceAdapter implements ResponseBodyAdvice<Object> {
+
+	private final RecentWriters recentWriters;
+
+	public RecentWriterAdvice(RecentWriters recentWriters) {
+		this.recentWriters = recentWriters;
+	}
+
+	@Override
+	public boolean supports(MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return UserScopedRequest.class.isAssignableFrom(parameter.getParameterType());
+	}
+
+	@Override
+	public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+			Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+		String username = ((UserScopedRequest) body).getUsername();
+		if (username != null) {
+			RequestContextHolder.currentRequestAttributes().setAttribute(ReplicaRoutingInterceptor.BODY_USERNAME,
+					username, RequestAttributes.SCOPE_REQUEST);
+		}
+		return body;
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		if (request instanceof ServletServerHttpRequest && response instanceof ServletServerHttpResponse) {
+			ReplicaRoutingInterceptor.recordWrite(recentWriters,
+					((ServletServerHttpRequest) request).getServletRequest(),
+					((ServletServerHttpResponse) response).getServletResponse().getStatus());
+		}
+		return body;
+	}
+}
@@ -0,0 +1,33 @@
+package com.example.demo.datasource;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Users who changed something within the last {@code app.datasource.read-your-writes.window}. Their
+ * reads stay on the primary for that long so a lagging replica cannot hide their own writes. A
+ * window of zero turns this off.
+ */
+public class RecentWriters {
+
+	private final Cache<String, Boolean> writers;
+
+	public RecentWriters(Duration window, long maximumSize) {
+		this.writers = window.isZero() ? null : Caffeine.newBuilder()
+				.expireAfterWrite(window)
+				.maximumSize(maximumSize)
+				.build();
+	}
+
+	public void recordWrite(String username) {
+		if (writers != null && username != null) {
+			writers.put(username, Boolean.TRUE);
+		}
+	}
+
+	public boolean wroteRecently(String username) {
+		return writers != null && username != null && writers.getIfPresent(username) != null;
+	}
+}
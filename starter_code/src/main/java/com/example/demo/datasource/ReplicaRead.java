@@ -0,0 +1,18 @@
+package com.example.demo.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller, or a single handler method, as read-only so that its queries may be served
+ * by the read replica when {@code app.datasource.routing.enabled} is set. Handlers without it
+ * always use the primary.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface ReplicaRead {
+}
@@ -0,0 +1,91 @@
+package com.example.demo.datasource;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Chooses the route for each request. Handlers marked {@link ReplicaRead} go to the replica unless
+ * the caller, or the {@code {username}} the request is about, wrote recently; everything else goes
+ * to the primary. A successful non-GET request records as recent writers the caller, the
+ * {@code {username}} path variable and the username in the request body, so that sign-up pins the
+ * new user too.
+ *
+ * <p>Writers are recorded before the response is committed, so a client that follows up as soon as
+ * it has the response is already pinned: {@link RecentWriterAdvice} records them before a response
+ * body is written, and {@link #postHandle} covers handlers without one.
+ *
+ * <p>The session keeps the connection it first acquired until the request ends, so one request
+ * never mixes primary and replica reads. Work handed to other threads, such as a streamed item
+ * list, starts without a route and uses the primary.
+ */
+public class ReplicaRoutingInterceptor implements AsyncHandlerInterceptor {
+
+	static final String BODY_USERNAME = ReplicaRoutingInterceptor.class.getName() + ".bodyUsername";
+
+	private final RecentWriters recentWriters;
+
+	public ReplicaRoutingInterceptor(RecentWriters recentWriters) {
+		this.recentWriters = recentWriters;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (handler instanceof HandlerMethod && isReplicaRead((HandlerMethod) handler)
+				&& !recentWriters.wroteRecently(request.getRemoteUser())
+				&& !recentWriters.wroteRecently(pathUsername(request))) {
+			DataSourceRoute.use(DataSourceRoute.REPLICA);
+		}
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+			ModelAndView modelAndView) {
+		recordWrite(recentWriters, request, response.getStatus());
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		DataSourceRoute.reset();
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		DataSourceRoute.reset();
+	}
+
+	/**
+	 * Records the users {@code request} wrote for, if it is a write that has succeeded so far.
+	 */
+	static void recordWrite(RecentWriters recentWriters, HttpServletRequest request, int status) {
+		if (status >= 400 || HttpMethod.GET.matches(request.getMethod())) {
+			return;
+		}
+		recentWriters.recordWrite(request.getRemoteUser());
+		recentWriters.recordWrite(pathUsername(request));
+		recentWriters.recordWrite((String) request.getAttribute(BODY_USERNAME));
+	}
+
+	private static boolean isReplicaRead(HandlerMethod handler) {
+		return handler.hasMethodAnnotation(ReplicaRead.class)
+				|| AnnotatedElementUtils.hasAnnotation(handler.getBeanType(), ReplicaRead.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String pathUsername(HttpServletRequest request) {
+		Map<String, String> variables =
+				(Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		return variables == null ? null : variables.get("username");
+	}
+}
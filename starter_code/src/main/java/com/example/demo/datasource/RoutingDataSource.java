@@ -0,0 +1,16 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out primary or replica connections according to {@link DataSourceRoute#current()}. Wrap it
+ * in a {@code LazyConnectionDataSourceProxy} so the route is read at the first statement, after
+ * the request's route has been chosen, rather than when a transaction begins.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return DataSourceRoute.current();
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Persists bucket assignments made by {@link ShardRebalancer} in {@code shard_bucket} on shard 0.
+ * Buckets without a row keep their initial shard.
+ */
+public class ShardAssignmentStore {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public ShardAssignmentStore(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Creates the table if needed and applies the stored assignments to {@code shardMap}.
+	 */
+	public void load(ShardMap shardMap) {
+		ShardContext.run(0, () -> {
+			jdbcTemplate.execute("create table if not exists shard_bucket (bucket int primary key, shard int not null)");
+			jdbcTemplate.query("select bucket, shard from shard_bucket",
+					(RowCallbackHandler) rs -> shardMap.assign(rs.getInt(1), rs.getInt(2)));
+		});
+	}
+
+	public void save(int bucket, int shard) {
+		ShardContext.run(0, () -> {
+			if (jdbcTemplate.update("update shard_bucket set shard = ? where bucket = ?", shard, bucket) == 0) {
+				jdbcTemplate.update("insert into shard_bucket (bucket, shard) values (?, ?)", bucket, shard);
+			}
+		});
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.demo.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's connections are taken from; shard 0 unless one was chosen. The
+ * choice only affects connections acquired after it is made: a session that already holds a
+ * connection keeps using it.
+ */
+public final class ShardContext {
+
+	private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+	private ShardContext() {
+	}
+
+	public static int current() {
+		Integer shard = CURRENT.get();
+		return shard == null ? 0 : shard;
+	}
+
+	/**
+	 * Chooses {@code shard} for the rest of the request; {@link ShardRoutingInterceptor} clears it.
+	 */
+	public static void bind(int shard) {
+		CURRENT.set(shard);
+	}
+
+	public static void clear() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Runs {@code work} against {@code shard} and restores the previous choice afterwards.
+	 */
+	public static <T> T call(int shard, Supplier<T> work) {
+		Integer previous = CURRENT.get();
+		CURRENT.set(shard);
+		try {
+			return work.get();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	public static void run(int shard, Runnable work) {
+		call(shard, () -> {
+			work.run();
+			return null;
+		});
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.demo.datasource;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Maps usernames to shards. A username hashes to one of {@link #BUCKETS} fixed buckets and each
+ * bucket is assigned to a shard, initially {@code bucket % shards}. Rebalancing moves whole
+ * buckets, so a user's shard only changes when their bucket is reassigned.
+ *
+ * <p>A bucket is frozen while its users are being moved; requests for them are turned away until
+ * the move finishes. Requests that got in before the freeze are counted per bucket, so that the
+ * move can wait for them before it reads the bucket.
+ */
+public class ShardMap {
+
+	public static final int BUCKETS = 1024;
+
+	private static final long DRAIN_POLL_MILLIS = 10;
+
+	private final int shardCount;
+	private final AtomicIntegerArray assignment = new AtomicIntegerArray(BUCKETS);
+	private final Set<Integer> frozen = ConcurrentHashMap.newKeySet();
+	private final AtomicIntegerArray inFlight = new AtomicIntegerArray(BUCKETS);
+
+	public ShardMap(int shardCount) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("At least one shard is required");
+		}
+		this.shardCount = shardCount;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			assignment.set(bucket, bucket % shardCount);
+		}
+	}
+
+	/**
+	 * The bucket of {@code username}. Uses {@link String#hashCode()}, whose value the JDK specifies,
+	 * mixed so that similar names spread across buckets; the result never changes between runs.
+	 */
+	public static int bucketOf(String username) {
+		int hash = username.hashCode();
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash & (BUCKETS - 1);
+	}
+
+	public int shardCount() {
+		return shardCount;
+	}
+
+	public int shardOf(String username) {
+		return assignment.get(bucketOf(username));
+	}
+
+	public int shardOfBucket(int bucket) {
+		return assignment.get(bucket);
+	}
+
+	public void assign(int bucket, int shard) {
+		if (shard < 0 || shard >= shardCount) {
+			throw new IllegalArgumentException("No shard " + shard + "; there are " + shardCount);
+		}
+		assignment.set(bucket, shard);
+	}
+
+	/**
+	 * Counts a request as in flight in {@code bucket} and returns true, or returns false if the
+	 * bucket is frozen. Each call that returns true must be matched by {@link #leave(int)}.
+	 */
+	public boolean enter(int bucket) {
+		// Counted before the frozen check: a move that freezes after this sees the request in flight.
+		inFlight.incrementAndGet(bucket);
+		if (frozen.contains(bucket)) {
+			inFlight.decrementAndGet(bucket);
+			return false;
+		}
+		return true;
+	}
+
+	public void leave(int bucket) {
+		inFlight.decrementAndGet(bucket);
+	}
+
+	public int inFlight(int bucket) {
+		return inFlight.get(bucket);
+	}
+
+	boolean freeze(int bucket) {
+		return frozen.add(bucket);
+	}
+
+	void unfreeze(int bucket) {
+		frozen.remove(bucket);
+	}
+
+	/**
+	 * Waits until no request is in flight in {@code bucket}, which should be frozen, and returns
+	 * false if that takes longer than {@code timeout}.
+	 */
+	boolean awaitDrained(int bucket, Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (inFlight.get(bucket) > 0) {
+			if (System.nanoTime() - deadline > 0) {
+				return false;
+			}
+			Thread.sleep(DRAIN_POLL_MILLIS);
+		}
+		return true;
+	}
+
+	/**
+	 * The number of buckets assigned to each shard.
+	 */
+	public int[] bucketCounts() {
+		int[] counts = new int[shardCount];
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts[assignment.get(bucket)]++;
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,188 @@
+package com.example.demo.datasource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves a bucket of users, with their carts and orders, from one shard to another.
+ *
+ * <p>The bucket is frozen for the duration, so no new request writes to its users meanwhile, and
+ * the move waits up to {@link #DRAIN_TIMEOUT} for requests that were already running to finish
+ * (see {@link ShardMap#enter(int)}); a write they commit on the source is therefore copied rather
+ * than deleted with the source rows. If they do not finish in time the move is abandoned before
+ * anything is copied. The bucket's users are read
+ * from the source {@link #PAGE_SIZE} at a time through the indexed {@code shard_bucket} column,
+ * and each user is copied to the target in one transaction, keeping its ids, which are unique
+ * across shards (see {@link ShardSchemaInitializer}). Tokens signed with those ids therefore stay
+ * valid after a move. Then the new assignment is stored, and finally the copied users are deleted
+ * from the source, a page per transaction. A move that stops part way can be repeated: users
+ * already on the target are not copied again.
+ */
+public class ShardRebalancer {
+
+	private static final Logger log = LogManager.getLogger(ShardRebalancer.class);
+
+	static final int PAGE_SIZE = 200;
+	static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+	private final ShardMap shardMap;
+	private final ShardAssignmentStore assignmentStore;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+
+	public ShardRebalancer(ShardMap shardMap, ShardAssignmentStore assignmentStore, JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate) {
+		this.shardMap = shardMap;
+		this.assignmentStore = assignmentStore;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Moves {@code bucket} to {@code target} and returns the number of users moved.
+	 */
+	public synchronized int moveBucket(int bucket, int target) {
+		if (bucket < 0 || bucket >= ShardMap.BUCKETS) {
+			throw new IllegalArgumentException("No bucket " + bucket + "; there are " + ShardMap.BUCKETS);
+		}
+		if (target < 0 || target >= shardMap.shardCount()) {
+			throw new IllegalArgumentException("No shard " + target + "; there are " + shardMap.shardCount());
+		}
+		int source = shardMap.shardOfBucket(bucket);
+		if (source == target) {
+			return 0;
+		}
+		shardMap.freeze(bucket);
+		try {
+			awaitDrained(bucket);
+			// Only the ids of copied users are kept, to delete exactly those from the source.
+			List<Long> copied = new ArrayList<>();
+			List<UserRows> page;
+			do {
+				long after = copied.isEmpty() ? Long.MIN_VALUE : copied.get(copied.size() - 1);
+				page = ShardContext.call(source, () -> read(bucket, after));
+				for (UserRows user : page) {
+					ShardContext.run(target, () -> transactionTemplate.execute(status -> {
+						copy(user);
+						return null;
+					}));
+					copied.add(((Number) user.user.get("id")).longValue());
+				}
+			} while (page.size() == PAGE_SIZE);
+			assignmentStore.save(bucket, target);
+			shardMap.assign(bucket, target);
+			for (int from = 0; from < copied.size(); from += PAGE_SIZE) {
+				List<Long> ids = copied.subList(from, Math.min(copied.size(), from + PAGE_SIZE));
+				ShardContext.run(source, () -> transactionTemplate.execute(status -> {
+					ids.forEach(this::delete);
+					return null;
+				}));
+			}
+			log.info("Moved bucket {} with {} users from shard {} to shard {}", bucket, copied.size(), source, target);
+			return copied.size();
+		} finally {
+			shardMap.unfreeze(bucket);
+		}
+	}
+
+	private void awaitDrained(int bucket) {
+		try {
+			if (!shardMap.awaitDrained(bucket, DRAIN_TIMEOUT)) {
+				throw new IllegalStateException("Bucket " + bucket + " still has " + shardMap.inFlight(bucket)
+						+ " requests in flight after " + DRAIN_TIMEOUT.getSeconds() + "s; not moved");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for bucket " + bucket + " to drain", e);
+		}
+	}
+
+	// One page of the bucket's users with ids above {@code after}, with their carts and orders.
+	private List<UserRows> read(int bucket, long after) {
+		List<UserRows> users = new ArrayList<>();
+		List<Map<String, Object>> page = jdbcTemplate.queryForList("select id, username, password, cart_id, "
+				+ "shard_bucket from user where shard_bucket = ? and id > ? order by id limit ?", bucket, after, PAGE_SIZE);
+		for (Map<String, Object> user : page) {
+			UserRows rows = new UserRows(user);
+			Object cartId = user.get("cart_id");
+			if (cartId != null) {
+				rows.cart = jdbcTemplate.queryForMap("select version, total from cart where id = ?", cartId);
+				rows.cartLines = jdbcTemplate.queryForList(
+						"select id, item_id, quantity, unit_price from cart_line where cart_id = ? order by id", cartId);
+			}
+			rows.orders = jdbcTemplate.queryForList(
+					"select id, reference, total, created_at, version from user_order where user_id = ? order by id",
+					user.get("id"));
+			for (Map<String, Object> order : rows.orders) {
+				rows.orderLines.add(jdbcTemplate.queryForList("select line_number, item_id, item_name, quantity, "
+						+ "unit_price from order_line where order_id = ? order by line_number", order.get("id")));
+			}
+			users.add(rows);
+		}
+		return users;
+	}
+
+	private void copy(UserRows rows) {
+		Integer existing = jdbcTemplate.queryForObject("select count(*) from user where username = ?", Integer.class,
+				rows.user.get("username"));
+		if (existing != null && existing > 0) {
+			return;
+		}
+		Object cartId = rows.user.get("cart_id");
+		if (rows.cart != null) {
+			jdbcTemplate.update("insert into cart (id, version, total) values (?, ?, ?)", cartId,
+					rows.cart.get("version"), rows.cart.get("total"));
+			for (Map<String, Object> line : rows.cartLines) {
+				jdbcTemplate.update("insert into cart_line (id, cart_id, item_id, quantity, unit_price) "
+						+ "values (?, ?, ?, ?, ?)", line.get("id"), cartId, line.get("item_id"), line.get("quantity"),
+						line.get("unit_price"));
+			}
+		}
+		jdbcTemplate.update("insert into user (id, username, password, cart_id, shard_bucket) values (?, ?, ?, ?, ?)",
+				rows.user.get("id"), rows.user.get("username"), rows.user.get("password"), cartId,
+				rows.user.get("shard_bucket"));
+		for (int i = 0; i < rows.orders.size(); i++) {
+			Map<String, Object> order = rows.orders.get(i);
+			jdbcTemplate.update("insert into user_order (id, reference, total, user_id, created_at, version) "
+					+ "values (?, ?, ?, ?, ?, ?)", order.get("id"), order.get("reference"), order.get("total"),
+					rows.user.get("id"), order.get("created_at"), order.get("version"));
+			for (Map<String, Object> line : rows.orderLines.get(i)) {
+				jdbcTemplate.update("insert into order_line (order_id, line_number, item_id, item_name, quantity, "
+						+ "unit_price) values (?, ?, ?, ?, ?, ?)", order.get("id"), line.get("line_number"),
+						line.get("item_id"), line.get("item_name"), line.get("quantity"), line.get("unit_price"));
+			}
+		}
+	}
+
+	private void delete(Long userId) {
+		List<Long> cartIds = jdbcTemplate.queryForList("select cart_id from user where id = ?", Long.class, userId);
+		Long cartId = cartIds.isEmpty() ? null : cartIds.get(0);
+		jdbcTemplate.update("delete from order_line where order_id in (select id from user_order where user_id = ?)",
+				userId);
+		jdbcTemplate.update("delete from user_order where user_id = ?", userId);
+		jdbcTemplate.update("delete from user where id = ?", userId);
+		if (cartId != null) {
+			jdbcTemplate.update("delete from cart_line where cart_id = ?", cartId);
+			jdbcTemplate.update("delete from cart where id = ?", cartId);
+		}
+	}
+
+	private static final class UserRows {
+		private final Map<String, Object> user;
+		private Map<String, Object> cart;
+		private List<Map<String, Object>> cartLines = new ArrayList<>();
+		private List<Map<String, Object>> orders = new ArrayList<>();
+		private final List<List<Map<String, Object>>> orderLines = new ArrayList<>();
+
+		UserRows(Map<String, Object> user) {
+			this.user = user;
+		}
+	}
+}
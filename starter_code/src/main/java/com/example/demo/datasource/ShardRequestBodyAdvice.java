@@ -0,0 +1,55 @@
+package com.example.demo.datasource;
+
+import java.lang.reflect.Type;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import com.example.demo.model.requests.UserScopedRequest;
+
+/**
+ * Puts requests whose body names a user, such as cart changes and sign-up, on that user's shard.
+ * Runs after {@link ShardRoutingInterceptor} and before the handler touches the database, and
+ * counts the request in flight in that user's bucket as the interceptor does.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "app.datasource.sharding.enabled", havingValue = "true")
+public class ShardRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+	private final ShardMap shardMap;
+
+	public ShardRequestBodyAdvice(ShardMap shardMap) {
+		this.shardMap = shardMap;
+	}
+
+	@Override
+	public boolean supports(MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return UserScopedRequest.class.isAssignableFrom(parameter.getParameterType());
+	}
+
+	@Override
+	public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+			Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+		String username = ((UserScopedRequest) body).getUsername();
+		if (username != null) {
+			HttpServletRequest request =
+					((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+			if (!ShardRoutingInterceptor.enter(shardMap, request, username)) {
+				throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "User is being moved to another shard");
+			}
+			ShardContext.bind(shardMap.shardOf(username));
+		}
+		return body;
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.demo.datasource;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Puts each request on the shard of the user it is about: the {@code {username}} path variable if
+ * the handler has one, otherwise the caller. A username in the request body takes over once the
+ * body is read; see {@link ShardRequestBodyAdvice}. Requests for a user whose bucket is being
+ * moved get 503. The others are counted in flight in their user's bucket until they complete, so
+ * that {@link ShardRebalancer} does not move a user while one of their requests is still writing.
+ */
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+	private static final String ENTERED_BUCKETS = ShardRoutingInterceptor.class.getName() + ".enteredBuckets";
+
+	private final ShardMap shardMap;
+
+	public ShardRoutingInterceptor(ShardMap shardMap) {
+		this.shardMap = shardMap;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		String username = username(request);
+		if (username == null) {
+			return true;
+		}
+		if (!enter(shardMap, request, username)) {
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			return false;
+		}
+		ShardContext.bind(shardMap.shardOf(username));
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		ShardContext.clear();
+		@SuppressWarnings("unchecked")
+		Set<Integer> entered = (Set<Integer>) request.getAttribute(ENTERED_BUCKETS);
+		if (entered != null) {
+			request.removeAttribute(ENTERED_BUCKETS);
+			entered.forEach(shardMap::leave);
+		}
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		ShardContext.clear();
+	}
+
+	/**
+	 * Counts {@code request} in flight in the bucket of {@code username} until it completes, unless
+	 * it already is; returns false if the bucket is frozen. A request is counted once per bucket,
+	 * also across the dispatches of an async request.
+	 */
+	@SuppressWarnings("unchecked")
+	static boolean enter(ShardMap shardMap, HttpServletRequest request, String username) {
+		int bucket = ShardMap.bucketOf(username);
+		Set<Integer> entered = (Set<Integer>) request.getAttribute(ENTERED_BUCKETS);
+		if (entered != null && entered.contains(bucket)) {
+			return true;
+		}
+		if (!shardMap.enter(bucket)) {
+			return false;
+		}
+		if (entered == null) {
+			entered = new HashSet<>();
+			request.setAttribute(ENTERED_BUCKETS, entered);
+		}
+		entered.add(bucket);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String username(HttpServletRequest request) {
+		Map<String, String> variables =
+				(Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		String username = variables == null ? null : variables.get("username");
+		return username != null ? username : request.getRemoteUser();
+	}
+}
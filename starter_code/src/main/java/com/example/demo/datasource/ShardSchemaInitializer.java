@@ -0,0 +1,79 @@
+package com.example.demo.datasource;
+
+import java.util.EnumSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.model.persistence.IdSequences;
+
+/**
+ * Brings every shard other than 0 up to date with the entity mappings and copies the catalog to
+ * them, once the application context has been built. Hibernate's own schema handling, and
+ * {@code data.sql}, only ever see shard 0.
+ *
+ * <p>Hibernate keeps one block of reserved ids per entity, whichever shard's sequence it came
+ * from, so the id sequences are interleaved: shard {@code i} hands out the blocks ending at
+ * {@code ALLOCATION_SIZE * (i + 1)} plus multiples of {@code ALLOCATION_SIZE * shards}. Ids are then
+ * unique across all shards. The sequence statements are written for H2.
+ */
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+
+	private static final Logger log = LogManager.getLogger(ShardSchemaInitializer.class);
+
+	private final ShardMap shardMap;
+	private final MappingMetadataCapture mappings;
+	private final CatalogReplicator catalogReplicator;
+	private final JdbcTemplate jdbcTemplate;
+	private final boolean updateSchema;
+
+	public ShardSchemaInitializer(ShardMap shardMap, MappingMetadataCapture mappings,
+			CatalogReplicator catalogReplicator, JdbcTemplate jdbcTemplate, boolean updateSchema) {
+		this.shardMap = shardMap;
+		this.mappings = mappings;
+		this.catalogReplicator = catalogReplicator;
+		this.jdbcTemplate = jdbcTemplate;
+		this.updateSchema = updateSchema;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (updateSchema) {
+			if (mappings.getMetadata() == null) {
+				throw new IllegalStateException("Hibernate mapping metadata was not captured");
+			}
+			for (int shard = 1; shard < shardMap.shardCount(); shard++) {
+				ShardContext.run(shard, () -> new SchemaUpdate()
+						.setHaltOnError(true)
+						.execute(EnumSet.of(TargetType.DATABASE), mappings.getMetadata(),
+								mappings.getServiceRegistry()));
+				log.info("Schema of shard {} updated", shard);
+			}
+		}
+		if (shardMap.shardCount() > 1) {
+			for (int shard = 0; shard < shardMap.shardCount(); shard++) {
+				int current = shard;
+				ShardContext.run(shard, () -> interleaveSequences(current));
+			}
+		}
+		catalogReplicator.replicate();
+	}
+
+	private void interleaveSequences(int shard) {
+		long stride = (long) IdSequences.ALLOCATION_SIZE * shardMap.shardCount();
+		long residue = (long) IdSequences.ALLOCATION_SIZE * (shard + 1);
+		IdSequences.TABLES.forEach((sequence, table) -> {
+			Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+			Long next = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+			// Past every id in use and every block Hibernate may already hold.
+			long floor = Math.max(maxId, next) + IdSequences.ALLOCATION_SIZE;
+			long start = residue + Math.max(0, (floor - residue + stride - 1) / stride) * stride;
+			jdbcTemplate.execute("alter sequence " + sequence + " restart with " + start + " increment by " + stride);
+		});
+		log.info("Id sequences of shard {} interleaved with stride {}", shard, stride);
+	}
+}
@@ -0,0 +1,15 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the shard chosen in {@link ShardContext}. Like
+ * {@link RoutingDataSource} it belongs behind a {@code LazyConnectionDataSourceProxy}.
+ */
+public class ShardingDataSource extends AbstractRoutingDataSource {
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ShardContext.current();
+	}
+}
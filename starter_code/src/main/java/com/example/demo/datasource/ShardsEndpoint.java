@@ -0,0 +1,69 @@
+package com.example.demo.datasource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * The rebalancing tool, as the {@code shards} actuator endpoint. It is not exposed by default;
+ * expose it over JMX ({@code spring.jmx.enabled=true},
+ * {@code management.endpoints.jmx.exposure.include=shards}) rather than on the public HTTP port.
+ */
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+	private final ShardMap shardMap;
+	private final ShardRebalancer rebalancer;
+	private final CatalogReplicator catalogReplicator;
+
+	public ShardsEndpoint(ShardMap shardMap, ShardRebalancer rebalancer, CatalogReplicator catalogReplicator) {
+		this.shardMap = shardMap;
+		this.rebalancer = rebalancer;
+		this.catalogReplicator = catalogReplicator;
+	}
+
+	@ReadOperation
+	public Map<String, Object> shards() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("shards", shardMap.shardCount());
+		result.put("buckets", ShardMap.BUCKETS);
+		result.put("bucketsPerShard", shardMap.bucketCounts());
+		return result;
+	}
+
+	@ReadOperation
+	public Map<String, Object> user(@Selector String username) {
+		int bucket = ShardMap.bucketOf(username);
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("username", username);
+		result.put("bucket", bucket);
+		result.put("shard", shardMap.shardOfBucket(bucket));
+		return result;
+	}
+
+	/**
+	 * Moves {@code bucket} to {@code shard}; see {@link ShardRebalancer#moveBucket(int, int)}.
+	 */
+	@WriteOperation
+	public Map<String, Object> move(@Selector int bucket, int shard) {
+		int users = rebalancer.moveBucket(bucket, shard);
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("bucket", bucket);
+		result.put("shard", shard);
+		result.put("users", users);
+		return result;
+	}
+
+	/**
+	 * Copies the catalog from shard 0 to the other shards again, after items have changed.
+	 */
+	@WriteOperation
+	public Map<String, Object> replicateCatalog() {
+		return Collections.singletonMap("items", catalogReplicator.replicate());
+	}
+}
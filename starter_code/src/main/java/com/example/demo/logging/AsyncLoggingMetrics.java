@@ -0,0 +1,47 @@
+package com.example.demo.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLoggerContext;
+import org.apache.logging.log4j.core.jmx.RingBufferAdmin;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes how full the async logging ring buffer is, and how often a full buffer made a logging
+ * thread wait ({@code action=block}), write the event itself ({@code action=synchronous}) or drop
+ * it ({@code action=discard}).
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		overflow(registry, "block", MeteredAsyncQueueFullPolicy.ENQUEUED);
+		overflow(registry, "synchronous", MeteredAsyncQueueFullPolicy.SYNCHRONOUS);
+		overflow(registry, "discard", MeteredAsyncQueueFullPolicy.DISCARDED);
+
+		Object context = LogManager.getContext(false);
+		if (context instanceof AsyncLoggerContext) {
+			RingBufferAdmin ringBuffer = ((AsyncLoggerContext) context).createRingBufferAdmin();
+			Gauge.builder("logging.async.buffer.remaining", ringBuffer, RingBufferAdmin::getRemainingCapacity)
+					.description("Free slots in the async logging ring buffer")
+					.register(registry);
+			Gauge.builder("logging.async.buffer.size", ringBuffer, RingBufferAdmin::getBufferSize)
+					.description("Capacity of the async logging ring buffer")
+					.register(registry);
+		}
+	}
+
+	private static void overflow(MeterRegistry registry, String action, LongAdder count) {
+		FunctionCounter.builder("logging.async.overflow", count, LongAdder::sum)
+				.description("Log events that found the ring buffer full")
+				.tag("action", action)
+				.register(registry);
+	}
+}
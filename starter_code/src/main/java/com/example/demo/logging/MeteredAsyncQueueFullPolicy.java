@@ -0,0 +1,52 @@
+package com.example.demo.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.AsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.DefaultAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.DiscardingAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * Decides what happens to a log event when the async logger's ring buffer is full, and counts
+ * each decision. {@code app.logging.overflow=block} makes the logging thread wait for space;
+ * {@code discard} drops events at or below {@code log4j2.discardThreshold} and waits for the rest.
+ * Log4j creates this class itself, before Spring starts, so the counts are kept statically and
+ * published by {@link AsyncLoggingMetrics}.
+ */
+public class MeteredAsyncQueueFullPolicy implements AsyncQueueFullPolicy {
+
+	static final LongAdder ENQUEUED = new LongAdder();
+	static final LongAdder SYNCHRONOUS = new LongAdder();
+	static final LongAdder DISCARDED = new LongAdder();
+
+	private final AsyncQueueFullPolicy delegate;
+
+	public MeteredAsyncQueueFullPolicy() {
+		PropertiesUtil properties = PropertiesUtil.getProperties();
+		if ("discard".equalsIgnoreCase(properties.getStringProperty("app.logging.overflow", "block"))) {
+			Level threshold = Level.toLevel(properties.getStringProperty("log4j2.discardThreshold", "INFO"), Level.INFO);
+			delegate = new DiscardingAsyncQueueFullPolicy(threshold);
+		} else {
+			delegate = new DefaultAsyncQueueFullPolicy();
+		}
+	}
+
+	@Override
+	public EventRoute getRoute(long backgroundThreadId, Level level) {
+		EventRoute route = delegate.getRoute(backgroundThreadId, level);
+		switch (route) {
+		case DISCARD:
+			DISCARDED.increment();
+			break;
+		case SYNCHRONOUS:
+			SYNCHRONOUS.increment();
+			break;
+		default:
+			ENQUEUED.increment();
+		}
+		return route;
+	}
+}
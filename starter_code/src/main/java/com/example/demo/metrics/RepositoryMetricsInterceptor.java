@@ -0,0 +1,92 @@
+package com.example.demo.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every Spring Data repository call as {@code api.repository.calls}, tagged with the
+ * repository interface, method and outcome, and adds the time of outermost calls to the current
+ * request's DB time. Meters are looked up by repository class and method without allocating.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Method, RepositoryMeters>> meters = new ConcurrentHashMap<>();
+
+	public RepositoryMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		RequestTiming timing = RequestTiming.current();
+		timing.repositoryDepth++;
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Object result = invocation.proceed();
+			success = true;
+			return result;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			if (--timing.repositoryDepth == 0 && timing.isStarted()) {
+				timing.repositoryNanos += elapsed;
+			}
+			RepositoryMeters repositoryMeters = meters(invocation);
+			(success ? repositoryMeters.success : repositoryMeters.error).record(elapsed, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private RepositoryMeters meters(MethodInvocation invocation) {
+		Class<?> type = invocation.getThis().getClass();
+		ConcurrentMap<Method, RepositoryMeters> byMethod = meters.get(type);
+		if (byMethod == null) {
+			byMethod = meters.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+		}
+		Method method = invocation.getMethod();
+		RepositoryMeters repositoryMeters = byMethod.get(method);
+		if (repositoryMeters == null) {
+			repositoryMeters = byMethod.computeIfAbsent(method,
+					m -> new RepositoryMeters(meterRegistry.getObject(), repositoryName(type), m.getName()));
+		}
+		return repositoryMeters;
+	}
+
+	// The application's own repository interface, not the Spring Data proxy or base class.
+	private static String repositoryName(Class<?> type) {
+		for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+			if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework.")) {
+				return candidate.getSimpleName();
+			}
+		}
+		return ClassUtils.getUserClass(type).getSimpleName();
+	}
+
+	private static final class RepositoryMeters {
+		private final Timer success;
+		private final Timer error;
+
+		RepositoryMeters(MeterRegistry registry, String repository, String method) {
+			this.success = calls(registry, repository, method, "SUCCESS");
+			this.error = calls(registry, repository, method, "ERROR");
+		}
+
+		private static Timer calls(MeterRegistry registry, String repository, String method, String outcome) {
+			return Timer.builder("api.repository.calls")
+					.description("Repository call latency")
+					.tags("repository", repository, "method", method, "outcome", outcome)
+					.register(registry);
+		}
+	}
+}
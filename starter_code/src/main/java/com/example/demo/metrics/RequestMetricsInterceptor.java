@@ -0,0 +1,113 @@
+package com.example.demo.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every controller method as {@code api.requests}, tagged with HTTP method, URI pattern and
+ * outcome, and records the time its repository calls took as {@code api.requests.db}. The
+ * meters for a handler are built the first time it is called; after that a request is recorded
+ * with a map lookup and two timer updates, without allocating.
+ *
+ * <p>Lazy loads triggered while the response is rendered happen outside repository calls and are
+ * not counted as DB time. For a streamed response only the time until streaming starts is
+ * recorded.
+ */
+@Component
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+	private final MeterRegistry meterRegistry;
+	private final ConcurrentMap<Method, HandlerMeters> meters = new ConcurrentHashMap<>();
+
+	public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		RequestTiming timing = RequestTiming.current();
+		if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+			timing.start();
+		} else {
+			timing.clear();
+		}
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		record(request, response, handler, null);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		record(request, response, handler, ex);
+	}
+
+	private void record(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		RequestTiming timing = RequestTiming.current();
+		if (!timing.isStarted()) {
+			return;
+		}
+		long elapsed = System.nanoTime() - timing.startNanos;
+		long repositoryNanos = timing.repositoryNanos;
+		timing.clear();
+
+		Method method = ((HandlerMethod) handler).getMethod();
+		HandlerMeters handlerMeters = meters.get(method);
+		if (handlerMeters == null) {
+			handlerMeters = meters.computeIfAbsent(method, m -> new HandlerMeters(meterRegistry, request));
+		}
+		int status = ex != null ? 500 : response.getStatus();
+		Timer timer = status >= 500 ? handlerMeters.serverError
+				: status >= 400 ? handlerMeters.clientError
+				: handlerMeters.success;
+		timer.record(elapsed, TimeUnit.NANOSECONDS);
+		handlerMeters.db.record(repositoryNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static final class HandlerMeters {
+		private final Timer success;
+		private final Timer clientError;
+		private final Timer serverError;
+		private final Timer db;
+
+		HandlerMeters(MeterRegistry registry, HttpServletRequest request) {
+			Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+			String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+			String method = request.getMethod();
+			this.success = requests(registry, method, uri, "SUCCESS");
+			this.clientError = requests(registry, method, uri, "CLIENT_ERROR");
+			this.serverError = requests(registry, method, uri, "SERVER_ERROR");
+			this.db = Timer.builder("api.requests.db")
+					.description("Time spent in repository calls per request")
+					.tags("method", method, "uri", uri)
+					.publishPercentileHistogram()
+					.register(registry);
+		}
+
+		private static Timer requests(MeterRegistry registry, String method, String uri, String outcome) {
+			return Timer.builder("api.requests")
+					.description("Controller method latency")
+					.tags("method", method, "uri", uri, "outcome", outcome)
+					.publishPercentileHistogram()
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.demo.metrics;
+
+/**
+ * Per-thread state of the request being handled on it. One instance is created per thread and
+ * reused for every request, so timing a request allocates nothing.
+ */
+final class RequestTiming {
+
+	private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+	long startNanos = -1;
+	long repositoryNanos;
+	int repositoryDepth;
+
+	static RequestTiming current() {
+		return CURRENT.get();
+	}
+
+	void start() {
+		startNanos = System.nanoTime();
+		repositoryNanos = 0;
+		repositoryDepth = 0;
+	}
+
+	boolean isStarted() {
+		return startNanos >= 0;
+	}
+
+	void clear() {
+		startNanos = -1;
+	}
+}
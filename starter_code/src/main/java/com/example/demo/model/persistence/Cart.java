@@ -2,20 +2,26 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,15 +29,22 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequences.CART)
+	@SequenceGenerator(name = IdSequences.CART, sequenceName = IdSequences.CART, allocationSize = IdSequences.ALLOCATION_SIZE)
 	@JsonProperty
 	@Column
 	private Long id;
+
+	@Version
+	@JsonIgnore
+	private Long version;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	// One line per distinct item, keyed by item id.
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@MapKey(name = "itemId")
+	@OrderBy("id")
+	@JsonIgnore
+	private Map<Long, CartLine> lines = new LinkedHashMap<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
@@ -65,33 +78,122 @@ public class Cart {
 		this.id = id;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	@JsonProperty("lines")
+	public Collection<CartLine> getLines() {
+		return lines.values();
+	}
+
+	public CartLine getLine(Long itemId) {
+		return lines.get(itemId);
+	}
+
+	public int getQuantity(Long itemId) {
+		CartLine line = lines.get(itemId);
+		return line == null ? 0 : line.getQuantity();
+	}
+
+	/**
+	 * Every item in the cart, repeated once per unit of quantity.
+	 */
+	@JsonIgnore
 	public List<Item> getItems() {
+		List<Item> items = new ArrayList<>();
+		for (CartLine line : lines.values()) {
+			for (int i = 0; i < line.getQuantity(); i++) {
+				items.add(line.getItem());
+			}
+		}
 		return items;
 	}
 
+	/**
+	 * Replaces the cart's lines with one unit per entry of {@code items}. The total is left as is.
+	 */
 	public void setItems(List<Item> items) {
-		this.items = items;
+		lines.clear();
+		if (items != null) {
+			items.forEach(item -> addLine(item, 1));
+		}
 	}
 	
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	public void addItem(Item item, int quantity) {
+		if (quantity <= 0) {
+			return;
 		}
-		items.add(item);
+		CartLine line = addLine(item, quantity);
 		if(total == null) {
 			total = new BigDecimal(0);
 		}
-		total = total.add(item.getPrice());
+		total = total.add(line.getUnitPrice().multiply(BigDecimal.valueOf(quantity)));
 	}
 	
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		CartLine line = lines.get(item.getId());
+		if (line == null || quantity <= 0) {
+			return;
+		}
+		int removed = Math.min(quantity, line.getQuantity());
+		if (removed == line.getQuantity()) {
+			lines.remove(item.getId());
+		} else {
+			line.setQuantity(line.getQuantity() - removed);
 		}
-		items.remove(item);
 		if(total == null) {
 			total = new BigDecimal(0);
 		}
-		total = total.subtract(item.getPrice());
+		total = total.subtract(line.getUnitPrice().multiply(BigDecimal.valueOf(removed)));
+	}
+
+	/**
+	 * Detached copy of the cart's id, user, total and lines.
+	 */
+	public static Cart copyOf(Cart source) {
+		Cart copy = new Cart();
+		copy.setId(source.getId());
+		copy.setUser(source.getUser());
+		copy.copyContentsFrom(source);
+		return copy;
+	}
+
+	/**
+	 * Makes this cart's lines and total match {@code source}. Lines for items in both carts are
+	 * updated in place, so only lines that actually changed are written.
+	 */
+	public void copyContentsFrom(Cart source) {
+		lines.entrySet().removeIf(entry -> !source.lines.containsKey(entry.getKey()));
+		for (Map.Entry<Long, CartLine> entry : source.lines.entrySet()) {
+			CartLine from = entry.getValue();
+			CartLine to = lines.get(entry.getKey());
+			if (to == null) {
+				to = new CartLine(this, from.getItem(), from.getQuantity());
+				lines.put(entry.getKey(), to);
+			}
+			to.setQuantity(from.getQuantity());
+			to.setUnitPrice(from.getUnitPrice());
+		}
+		total = source.getTotal();
+	}
+
+	private CartLine addLine(Item item, int quantity) {
+		CartLine line = lines.get(item.getId());
+		if (line == null) {
+			line = new CartLine(this, item, quantity);
+			lines.put(item.getId(), line);
+		} else {
+			line.setQuantity(Math.addExact(line.getQuantity(), quantity));
+		}
+		return line;
 	}
 }
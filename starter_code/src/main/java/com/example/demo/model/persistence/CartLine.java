@@ -0,0 +1,113 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@Entity
+@Table(name = "cart_line", uniqueConstraints = @UniqueConstraint(name = CartLine.CART_ITEM_KEY, columnNames = {"cart_id", "item_id"}))
+public class CartLine {
+
+	public static final String CART_ITEM_KEY = "uk_cart_line_cart_item";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequences.CART_LINE)
+	@SequenceGenerator(name = IdSequences.CART_LINE, sequenceName = IdSequences.CART_LINE, allocationSize = IdSequences.ALLOCATION_SIZE)
+	@JsonProperty
+	private Long id;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	// Read-only copy of the item foreign key, used as the key of Cart's line map.
+	@Column(name = "item_id", insertable = false, updatable = false)
+	@JsonIgnore
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private BigDecimal unitPrice;
+
+	public CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item, int quantity) {
+		this.cart = cart;
+		this.item = item;
+		this.itemId = item.getId();
+		this.quantity = quantity;
+		this.unitPrice = item.getPrice();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public void setCart(Cart cart) {
+		this.cart = cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+		this.itemId = item == null ? null : item.getId();
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(BigDecimal unitPrice) {
+		this.unitPrice = unitPrice;
+	}
+
+	public BigDecimal getLineTotal() {
+		return unitPrice.multiply(BigDecimal.valueOf(quantity));
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.model.persistence;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The database sequences entity ids are drawn from. Hibernate's pooled optimizer reserves
+ * {@link #ALLOCATION_SIZE} ids per sequence call, which keeps ids known before the insert, so
+ * inserts can be batched ({@code hibernate.jdbc.batch_size}). Each sequence value is the highest id
+ * of its block, and a block is only ever used by the caller that fetched it.
+ */
+public final class IdSequences {
+
+	public static final int ALLOCATION_SIZE = 50;
+
+	public static final String CART = "cart_seq";
+	public static final String CART_LINE = "cart_line_seq";
+	public static final String ITEM = "item_seq";
+	public static final String USER = "user_seq";
+	public static final String USER_ORDER = "user_order_seq";
+
+	/**
+	 * Each sequence with the table whose ids it generates.
+	 */
+	public static final Map<String, String> TABLES;
+
+	static {
+		Map<String, String> tables = new LinkedHashMap<>();
+		tables.put(CART, "cart");
+		tables.put(CART_LINE, "cart_line");
+		tables.put(ITEM, "item");
+		tables.put(USER, "user");
+		tables.put(USER_ORDER, "user_order");
+		TABLES = Collections.unmodifiableMap(tables);
+	}
+
+	private IdSequences() {
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What was bought, as it was at submit time. The line keeps the item's id and name and the
+ * price paid rather than a reference to the catalog row, so reading an order never joins the
+ * item table and later catalog changes cannot alter it.
+ */
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false, updatable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(name = "item_name", nullable = false, updatable = false)
+	@JsonProperty
+	private String itemName;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private BigDecimal unitPrice;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(Long itemId, String itemName, int quantity, BigDecimal unitPrice) {
+		this.itemId = itemId;
+		this.itemName = itemName;
+		this.quantity = quantity;
+		this.unitPrice = unitPrice;
+	}
+
+	public static OrderLine of(CartLine line) {
+		return new OrderLine(line.getItem().getId(), line.getItem().getName(), line.getQuantity(), line.getUnitPrice());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public BigDecimal getUnitPrice() {
+		return unitPrice;
+	}
+
+	public BigDecimal getLineTotal() {
+		return unitPrice.multiply(BigDecimal.valueOf(quantity));
+	}
+}
@@ -1,5 +1,7 @@
 package com.example.demo.model.persistence;
 
+import com.example.demo.datasource.ShardMap;
+import com.example.demo.user.UsernameFilterListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -7,11 +9,13 @@ import javax.persistence.*;
 
 
 @Entity
-@Table(name = "user")
+@Table(name = "user", indexes = @Index(name = "idx_user_shard_bucket", columnList = "shard_bucket, id"))
+@EntityListeners(UsernameFilterListener.class)
 public class User {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequences.USER)
+	@SequenceGenerator(name = IdSequences.USER, sequenceName = IdSequences.USER, allocationSize = IdSequences.ALLOCATION_SIZE)
 	@JsonProperty
 	private long id;
 
@@ -19,6 +23,11 @@ public class User {
 	@JsonProperty
 	private String username;
 
+	// ShardMap.bucketOf(username), so a bucket's users can be found by index when it is moved.
+	@Column(name = "shard_bucket", nullable = false)
+	@JsonIgnore
+	private int shardBucket;
+
 	@JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
 	@Column(nullable = false)
 	private String password;
@@ -56,6 +65,11 @@ public class User {
 
 	public void setUsername(String username) {
 		this.username = username;
+		this.shardBucket = username == null ? 0 : ShardMap.bucketOf(username);
+	}
+
+	public int getShardBucket() {
+		return shardBucket;
 	}
 
 
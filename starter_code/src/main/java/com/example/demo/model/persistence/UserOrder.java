@@ -1,37 +1,63 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
-import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OrderColumn;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "user_order")
+// History is read newest first per user, by descending id.
+@Table(name = "user_order", indexes = @Index(name = "idx_user_order_user_id", columnList = "user_id, id"))
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequences.USER_ORDER)
+	@SequenceGenerator(name = IdSequences.USER_ORDER, sequenceName = IdSequences.USER_ORDER, allocationSize = IdSequences.ALLOCATION_SIZE)
 	@JsonProperty
 	@Column
 	private Long id;
+
+	@Version
+	@JsonIgnore
+	private Long version;
+
+	// Client-facing order number, assigned before the row exists so it can be handed out
+	// while the order is still queued for writing.
+	@Column(nullable = false, unique = true, updatable = false, length = 36)
+	@JsonProperty
+	private String reference;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	// Snapshots written once with the order; Hibernate rejects any later change to them.
+	@ElementCollection
+	@CollectionTable(name = "order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@OrderColumn(name = "line_number")
+	@Immutable
+	@BatchSize(size = 50)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<OrderLine> lines = new ArrayList<>();
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
@@ -42,6 +68,10 @@ public class UserOrder {
 	@Column
 	private BigDecimal total;
 
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private Instant createdAt;
+
 	public Long getId() {
 		return id;
 	}
@@ -50,12 +80,20 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public Long getVersion() {
+		return version;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public List<OrderLine> getLines() {
+		return Collections.unmodifiableList(lines);
 	}
 
 	public User getUser() {
@@ -74,9 +112,21 @@ public class UserOrder {
 		this.total = total;
 	}
 
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
+		order.setReference(UUID.randomUUID().toString());
+		order.setCreatedAt(Instant.now());
+		for (CartLine line : cart.getLines()) {
+			order.lines.add(OrderLine.of(line));
+		}
 		order.setTotal(cart.getTotal());
 		order.setUser(cart.getUser());
 		return order;
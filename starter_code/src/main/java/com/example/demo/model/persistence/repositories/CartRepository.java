@@ -1,5 +1,8 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.demo.model.persistence.Cart;
@@ -10,4 +13,8 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	// Everything a serialized cart touches, read in one joined select.
+	@EntityGraph(attributePaths = {"lines", "lines.item", "user"})
+	Optional<Cart> findWithLinesById(Long id);
 }
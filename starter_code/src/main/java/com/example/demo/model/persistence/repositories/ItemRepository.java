@@ -2,13 +2,37 @@ package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.Item;
 import org.springframework.stereotype.Repository;
 
+import static com.example.demo.config.ItemCacheConfiguration.ITEMS_BY_NAME_REGION;
+
+/**
+ * {@code findById} is answered from Hibernate's second-level cache and {@code findByName} from its
+ * query cache; see {@link com.example.demo.config.ItemCacheConfiguration}. Every write to an item
+ * through Hibernate invalidates both, whichever repository method or query made it.
+ */
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
+	@QueryHints({
+			@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+			@QueryHint(name = "org.hibernate.cacheRegion", value = ITEMS_BY_NAME_REGION)})
 	List<Item> findByName(String name);
 
+	List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	// Constructor expression: rows come back unmanaged, so a long streaming read
+	// does not keep every item it has written in the persistence context.
+	@Query("select new com.example.demo.model.persistence.Item(i.id, i.name, i.price, i.description) "
+			+ "from Item i where i.id > :after order by i.id")
+	List<Item> findDetachedByIdGreaterThan(@Param("after") Long after, Pageable pageable);
+
 }
@@ -1,14 +1,40 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.order.OrderSummary;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	UserOrder findByReference(String reference);
+
+	@EntityGraph(attributePaths = {"user", "lines"})
+	Optional<UserOrder> findByIdAndUserId(Long id, long userId);
+
+	// A page of full orders is read in two steps: the page's ids, then those orders with their
+	// user and lines joined in. Paging a fetch join directly would page in memory.
+	@Query("select o.id from UserOrder o where o.user.id = :userId and o.id < :before order by o.id desc")
+	List<Long> findIdsByUserId(@Param("userId") long userId, @Param("before") Long before, Pageable pageable);
+
+	@EntityGraph(attributePaths = {"user", "lines"})
+	List<UserOrder> findDistinctByIdInOrderByIdDesc(Collection<Long> ids);
+
+	// size() becomes a count subquery on order_line, so the lines themselves are never loaded.
+	@Query("select new com.example.demo.order.OrderSummary(o.id, o.reference, o.total, size(o.lines), o.createdAt) "
+			+ "from UserOrder o where o.user.id = :userId and o.id < :before order by o.id desc")
+	List<OrderSummary> findSummariesByUserId(@Param("userId") long userId, @Param("before") Long before,
+			Pageable pageable);
 }
@@ -6,6 +6,5 @@ import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-	User findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UsernameLookup {
 }
@@ -0,0 +1,17 @@
+package com.example.demo.model.persistence.repositories;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * Repository fragment for username lookups, implemented by {@link UsernameLookupImpl}.
+ */
+public interface UsernameLookup {
+	User findByUsername(String username);
+
+	/**
+	 * Like {@link #findByUsername}, but queries even when the username filter has not seen the
+	 * name, for callers that must not miss a user created elsewhere since its last rebuild. A user
+	 * found that way is added to the filter.
+	 */
+	User findByUsernameUnfiltered(String username);
+}
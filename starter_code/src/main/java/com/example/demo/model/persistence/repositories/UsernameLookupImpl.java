@@ -0,0 +1,48 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.user.UsernameBloomFilter;
+
+/**
+ * {@link UserRepository#findByUsername} for every caller: names the filter has never seen are
+ * answered with {@code null} without a query. Login uses {@link #findByUsernameUnfiltered}.
+ */
+public class UsernameLookupImpl implements UsernameLookup {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private UsernameBloomFilter usernameFilter;
+
+	@Override
+	public User findByUsername(String username) {
+		if (!usernameFilter.mightContain(username)) {
+			return null;
+		}
+		return query(username);
+	}
+
+	@Override
+	public User findByUsernameUnfiltered(String username) {
+		User user = query(username);
+		if (user != null && !usernameFilter.mightContain(username)) {
+			usernameFilter.add(username);
+		}
+		return user;
+	}
+
+	private User query(String username) {
+		List<User> users = entityManager.createQuery("select u from User u where u.username = :username", User.class)
+				.setParameter("username", username)
+				.getResultList();
+		return users.isEmpty() ? null : users.get(0);
+	}
+}
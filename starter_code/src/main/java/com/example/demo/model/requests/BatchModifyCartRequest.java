@@ -0,0 +1,67 @@
+package com.example.demo.model.requests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BatchModifyCartRequest implements UserScopedRequest {
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private List<CartOperation> operations = new ArrayList<>();
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public List<CartOperation> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(List<CartOperation> operations) {
+		this.operations = operations;
+	}
+
+	/**
+	 * A change to the quantity of one item: positive adds units, negative removes them.
+	 */
+	public static class CartOperation {
+
+		@JsonProperty
+		private long itemId;
+
+		@JsonProperty
+		private int quantity;
+
+		public CartOperation() {
+		}
+
+		public CartOperation(long itemId, int quantity) {
+			this.itemId = itemId;
+			this.quantity = quantity;
+		}
+
+		public long getItemId() {
+			return itemId;
+		}
+
+		public void setItemId(long itemId) {
+			this.itemId = itemId;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+	}
+}
@@ -2,7 +2,7 @@ package com.example.demo.model.requests;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class CreateUserRequest {
+public class CreateUserRequest implements UserScopedRequest {
 
 	@JsonProperty
 	private String username;
@@ -2,7 +2,7 @@ package com.example.demo.model.requests;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class ModifyCartRequest {
+public class ModifyCartRequest implements UserScopedRequest {
 	
 	@JsonProperty
 	private String username;
@@ -0,0 +1,9 @@
+package com.example.demo.model.requests;
+
+/**
+ * A request body that names the user it acts on.
+ */
+public interface UserScopedRequest {
+
+	String getUsername();
+}
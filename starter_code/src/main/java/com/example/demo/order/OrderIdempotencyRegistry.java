@@ -0,0 +1,206 @@
+package com.example.demo.order;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Remembers which order each {@code Idempotency-Key} produced, per user, for
+ * {@code app.order.idempotency.window}. A retried submission is answered from here instead of
+ * placing the order again.
+ *
+ * <p>Completed keys are appended to {@code app.order.idempotency.log-file} when one is set. On
+ * startup the log is replayed, entries older than the window are dropped, and the file is
+ * rewritten with what is left. Entries keep only the order's reference and id, never the order
+ * itself, so a retry reads the order back by reference.
+ */
+@Component
+@ConditionalOnProperty(name = "app.order.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderIdempotencyRegistry {
+
+	private static final Logger log = LogManager.getLogger(OrderIdempotencyRegistry.class);
+
+	private static final Pattern VALID_KEY = Pattern.compile("[\\x21-\\x7e]{1,255}");
+	private static final Outcome IN_PROGRESS = new Outcome(null, null, 0);
+
+	private final Duration window;
+	private final Path logFile;
+	private final Cache<String, Outcome> outcomes;
+
+	private BufferedWriter writer;
+
+	public OrderIdempotencyRegistry(@Value("${app.order.idempotency.window:24h}") Duration window,
+			@Value("${app.order.idempotency.maximum-size:100000}") long maximumSize,
+			@Value("${app.order.idempotency.log-file:}") String logFile) {
+		this.window = window;
+		this.logFile = logFile.isEmpty() ? null : Paths.get(logFile);
+		this.outcomes = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfter(new Expiry<String, Outcome>() {
+					@Override
+					public long expireAfterCreate(String scope, Outcome outcome, long currentTime) {
+						return remaining(outcome);
+					}
+
+					@Override
+					public long expireAfterUpdate(String scope, Outcome outcome, long currentTime, long currentDuration) {
+						return remaining(outcome);
+					}
+
+					@Override
+					public long expireAfterRead(String scope, Outcome outcome, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.build();
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (logFile == null) {
+			return;
+		}
+		int replayed = replay();
+		writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		log.info("Idempotency log {} replayed, {} keys still inside the window", logFile, replayed);
+	}
+
+	@PreDestroy
+	public synchronized void stop() throws IOException {
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	public static boolean isValidKey(String key) {
+		return VALID_KEY.matcher(key).matches();
+	}
+
+	/**
+	 * Claims {@code key} for {@code username}. Returns {@code null} when the caller now owns the
+	 * key and must finish with {@link #complete} or {@link #release}; otherwise returns what the
+	 * earlier submission with this key left behind.
+	 */
+	public Outcome reserve(String username, String key) {
+		return outcomes.asMap().putIfAbsent(scope(username, key), IN_PROGRESS);
+	}
+
+	public void complete(String username, String key, UserOrder order) {
+		String scope = scope(username, key);
+		Outcome outcome = new Outcome(order.getReference(), order.getId(), System.currentTimeMillis());
+		outcomes.put(scope, outcome);
+		append(scope, outcome);
+	}
+
+	public void release(String username, String key) {
+		outcomes.asMap().remove(scope(username, key), IN_PROGRESS);
+	}
+
+	private static String scope(String username, String key) {
+		// Keys never contain a space, so the first space always ends the key.
+		return key + ' ' + username;
+	}
+
+	// Replayed entries keep the time they were first recorded, so a restart does not extend the window.
+	private long remaining(Outcome outcome) {
+		if (outcome.isInProgress()) {
+			return window.toNanos();
+		}
+		long elapsed = System.currentTimeMillis() - outcome.recordedAt;
+		return Math.max(0, TimeUnit.MILLISECONDS.toNanos(window.toMillis() - elapsed));
+	}
+
+	private synchronized void append(String scope, Outcome outcome) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.write(outcome.recordedAt + "\t" + outcome.reference + "\t" + scope);
+			writer.newLine();
+			writer.flush();
+		} catch (IOException e) {
+			// The in-memory entry still protects against retries until the next restart.
+			log.error("Failed to append to idempotency log {}: {}", logFile, e.getMessage());
+		}
+	}
+
+	private int replay() throws IOException {
+		if (!Files.exists(logFile)) {
+			return 0;
+		}
+		long cutoff = System.currentTimeMillis() - window.toMillis();
+		List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+		Path compacted = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+			for (String line : lines) {
+				String[] fields = line.split("\t", 3);
+				if (fields.length < 3) {
+					continue;
+				}
+				long recordedAt = Long.parseLong(fields[0]);
+				if (recordedAt < cutoff) {
+					continue;
+				}
+				outcomes.put(fields[2], new Outcome(fields[1], null, recordedAt));
+				out.write(line);
+				out.newLine();
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("Corrupt idempotency log " + logFile, e);
+		}
+		Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return (int) outcomes.estimatedSize();
+	}
+
+	/**
+	 * The result of an earlier submission: still running, or done with the order it produced.
+	 * The order id is only known in memory; after a restart just the reference is.
+	 */
+	public static final class Outcome {
+		private final String reference;
+		private final Long orderId;
+		private final long recordedAt;
+
+		Outcome(String reference, Long orderId, long recordedAt) {
+			this.reference = reference;
+			this.orderId = orderId;
+			this.recordedAt = recordedAt;
+		}
+
+		public boolean isInProgress() {
+			return reference == null;
+		}
+
+		public String getReference() {
+			return reference;
+		}
+
+		public Long getOrderId() {
+			return orderId;
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package com.example.demo.order;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.IdSequences;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Asynchronous checkout. {@link #submit(UserOrder)} only puts the order on a bounded queue; a
+ * single writer thread drains the queue and writes each group of orders with two JDBC batches:
+ * one insert for the orders and one for all their lines. Order ids come from Hibernate's pooled
+ * sequence generator, so they are known up front and only cost a query per
+ * {@link IdSequences#ALLOCATION_SIZE} orders. Clients poll {@link #status(String)} with the order
+ * reference.
+ *
+ * <p>An order queued with an idempotency key keeps that key in progress until its batch commits.
+ * The key is then completed with the order, or released if the batch fails so a retry can submit
+ * again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.order.async.enabled", havingValue = "true")
+public class OrderSubmissionPipeline {
+
+	private static final Logger log = LogManager.getLogger(OrderSubmissionPipeline.class);
+
+	private static final String INSERT_ORDER =
+			"insert into user_order (id, reference, total, user_id, created_at, version) values (?, ?, ?, ?, ?, 0)";
+	private static final String INSERT_LINE =
+			"insert into order_line (order_id, line_number, item_id, item_name, quantity, unit_price) values (?, ?, ?, ?, ?, ?)";
+
+	private final BlockingQueue<PendingOrder> queue;
+	private final int maxBatchSize;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Cache<String, OrderTicket> tickets;
+
+	private final DistributionSummary batchSizes;
+	private final Timer latency;
+	private final Counter rejected;
+	private final Counter failed;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired(required = false)
+	private OrderIdempotencyRegistry orderIdempotencyRegistry;
+
+	private volatile boolean running;
+	private Thread writer;
+
+	public OrderSubmissionPipeline(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${app.order.async.queue-capacity:10000}") int queueCapacity,
+			@Value("${app.order.async.max-batch-size:200}") int maxBatchSize) {
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.maxBatchSize = maxBatchSize;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		// Written orders are answered from the database; this only has to outlive a client's polling.
+		this.tickets = Caffeine.newBuilder()
+				.maximumSize(queueCapacity * 10L)
+				.expireAfterWrite(1, TimeUnit.HOURS)
+				.build();
+
+		Gauge.builder("orders.async.queue.depth", queue, BlockingQueue::size)
+				.description("Orders waiting to be written")
+				.register(meterRegistry);
+		this.batchSizes = DistributionSummary.builder("orders.async.batch.size")
+				.description("Orders written per JDBC batch")
+				.register(meterRegistry);
+		this.latency = Timer.builder("orders.async.latency")
+				.description("Time from enqueue to commit")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		this.rejected = Counter.builder("orders.async.rejected")
+				.description("Orders turned away because the queue was full")
+				.register(meterRegistry);
+		this.failed = Counter.builder("orders.async.failed")
+				.description("Orders whose batch failed to write")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		writer = new Thread(this::writeLoop, "order-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		writer.join(TimeUnit.SECONDS.toMillis(30));
+		List<PendingOrder> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		for (int from = 0; from < remaining.size(); from += maxBatchSize) {
+			write(remaining.subList(from, Math.min(remaining.size(), from + maxBatchSize)));
+		}
+		log.info("Order writer stopped, {} queued orders written on shutdown", remaining.size());
+	}
+
+	/**
+	 * Queues {@code order} for writing, or returns {@code null} if the queue is full.
+	 */
+	public OrderTicket submit(UserOrder order) {
+		return submit(order, order.getUser().getUsername(), null);
+	}
+
+	/**
+	 * Queues {@code order} placed by {@code username}, or returns {@code null} if the queue is full.
+	 * A non-null {@code idempotencyKey}, reserved by the caller, is left in progress until the order
+	 * is written.
+	 */
+	public OrderTicket submit(UserOrder order, String username, String idempotencyKey) {
+		OrderTicket ticket = OrderTicket.queued(order.getReference(), username);
+		tickets.put(order.getReference(), ticket);
+		if (!queue.offer(new PendingOrder(order, username, idempotencyKey, System.nanoTime()))) {
+			tickets.invalidate(order.getReference());
+			rejected.increment();
+			return null;
+		}
+		return ticket;
+	}
+
+	/**
+	 * Status of an order submitted through this pipeline, or {@code null} if it is not known here.
+	 */
+	public OrderTicket status(String reference) {
+		return tickets.getIfPresent(reference);
+	}
+
+	public int queueDepth() {
+		return queue.size();
+	}
+
+	private void writeLoop() {
+		List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+		while (running) {
+			try {
+				PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, maxBatchSize - 1);
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void write(List<PendingOrder> batch) {
+		try {
+			Map<String, Long> ids = transactionTemplate.execute(status -> insert(batch));
+			long now = System.nanoTime();
+			for (PendingOrder pending : batch) {
+				String reference = pending.order.getReference();
+				pending.order.setId(ids.get(reference));
+				tickets.put(reference, OrderTicket.completed(reference, ids.get(reference), pending.username));
+				if (pending.idempotencyKey != null && orderIdempotencyRegistry != null) {
+					orderIdempotencyRegistry.complete(pending.username, pending.idempotencyKey, pending.order);
+				}
+				latency.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+			}
+			batchSizes.record(batch.size());
+			log.debug("Wrote {} orders", batch.size());
+		} catch (RuntimeException e) {
+			log.error("Failed to write {} orders: {}", batch.size(), e.getMessage());
+			for (PendingOrder pending : batch) {
+				tickets.put(pending.order.getReference(),
+						OrderTicket.failed(pending.order.getReference(), pending.username));
+				if (pending.idempotencyKey != null && orderIdempotencyRegistry != null) {
+					orderIdempotencyRegistry.release(pending.username, pending.idempotencyKey);
+				}
+			}
+			failed.increment(batch.size());
+		}
+	}
+
+	private Map<String, Long> insert(List<PendingOrder> batch) {
+		// The generator shares its reserved block of ids with Hibernate's own inserts.
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		IdentifierGenerator generator =
+				session.getFactory().getMetamodel().entityPersister(UserOrder.class).getIdentifierGenerator();
+		Map<String, Long> ids = new HashMap<>();
+		List<Object[]> orderRows = new ArrayList<>(batch.size());
+		for (PendingOrder pending : batch) {
+			UserOrder order = pending.order;
+			Long id = (Long) generator.generate(session, order);
+			ids.put(order.getReference(), id);
+			orderRows.add(new Object[]{id, order.getReference(), order.getTotal(), order.getUser().getId(),
+					Timestamp.from(order.getCreatedAt())});
+		}
+		jdbcTemplate.batchUpdate(INSERT_ORDER, orderRows);
+
+		List<Object[]> lineRows = new ArrayList<>();
+		for (PendingOrder pending : batch) {
+			Long orderId = ids.get(pending.order.getReference());
+			List<OrderLine> lines = pending.order.getLines();
+			for (int number = 0; number < lines.size(); number++) {
+				OrderLine line = lines.get(number);
+				lineRows.add(new Object[]{orderId, number, line.getItemId(), line.getItemName(), line.getQuantity(),
+						line.getUnitPrice()});
+			}
+		}
+		jdbcTemplate.batchUpdate(INSERT_LINE, lineRows);
+		return ids;
+	}
+
+	private static final class PendingOrder {
+		private final UserOrder order;
+		private final String username;
+		private final String idempotencyKey;
+		private final long enqueuedAt;
+
+		PendingOrder(UserOrder order, String username, String idempotencyKey, long enqueuedAt) {
+			this.order = order;
+			this.username = username;
+			this.idempotencyKey = idempotencyKey;
+			this.enqueuedAt = enqueuedAt;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.demo.order;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One row of a user's order history, read with a constructor expression so that listing
+ * orders never loads their lines or the items behind them.
+ */
+public class OrderSummary {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final String reference;
+
+	@JsonProperty
+	private final BigDecimal total;
+
+	@JsonProperty
+	private final int lineCount;
+
+	@JsonProperty
+	private final Instant createdAt;
+
+	public OrderSummary(Long id, String reference, BigDecimal total, int lineCount, Instant createdAt) {
+		this.id = id;
+		this.reference = reference;
+		this.total = total;
+		this.lineCount = lineCount;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
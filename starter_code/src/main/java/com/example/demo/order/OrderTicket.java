@@ -0,0 +1,64 @@
+package com.example.demo.order;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What a client gets back for an order submitted asynchronously, and when polling its status.
+ * The owning username is kept so only that user is shown the ticket; it is not serialized.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderTicket {
+
+	public enum Status {
+		QUEUED, COMPLETED, FAILED
+	}
+
+	@JsonProperty
+	private final String reference;
+
+	@JsonProperty
+	private final Status status;
+
+	@JsonProperty
+	private final Long orderId;
+
+	@JsonIgnore
+	private final String username;
+
+	public OrderTicket(String reference, Status status, Long orderId, String username) {
+		this.reference = reference;
+		this.status = status;
+		this.orderId = orderId;
+		this.username = username;
+	}
+
+	public static OrderTicket queued(String reference, String username) {
+		return new OrderTicket(reference, Status.QUEUED, null, username);
+	}
+
+	public static OrderTicket completed(String reference, Long orderId, String username) {
+		return new OrderTicket(reference, Status.COMPLETED, orderId, username);
+	}
+
+	public static OrderTicket failed(String reference, String username) {
+		return new OrderTicket(reference, Status.FAILED, null, username);
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+}
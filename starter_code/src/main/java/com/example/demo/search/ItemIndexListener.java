@@ -0,0 +1,55 @@
+package com.example.demo.search;
+
+import java.util.function.Consumer;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * Keeps {@link ItemSearchIndex} in step with item writes. Changes made inside a transaction are
+ * applied once it commits. The index is looked up lazily because Hibernate creates this listener
+ * while the entity manager factory the index depends on is still being built.
+ */
+public class ItemIndexListener {
+
+	@Autowired
+	private ObjectProvider<ItemSearchIndex> searchIndex;
+
+	@PostPersist
+	@PostUpdate
+	public void onSave(Item item) {
+		Item copy = new Item(item.getId(), item.getName(), item.getPrice(), item.getDescription());
+		afterCommit(index -> index.put(copy));
+	}
+
+	@PostRemove
+	public void onRemove(Item item) {
+		Long id = item.getId();
+		afterCommit(index -> index.remove(id));
+	}
+
+	private void afterCommit(Consumer<ItemSearchIndex> change) {
+		ItemSearchIndex index = searchIndex == null ? null : searchIndex.getIfAvailable();
+		if (index == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.accept(index);
+				}
+			});
+		} else {
+			change.accept(index);
+		}
+	}
+}
@@ -0,0 +1,484 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions. Every token is indexed as a whole
+ * word and as its edge n-grams (prefixes), so "wid" finds "Widget". A query matches an item when
+ * every query token matches one of its words; matches are ranked by where and how each token hit.
+ * Query tokens must be at least {@value #MIN_GRAM} characters; a token longer than
+ * {@value #MAX_GRAM} is looked up by its indexed prefix and checked against the item's words.
+ *
+ * <p>Documents are append-only: an update tombstones the old document and appends a new one, which
+ * keeps every posting list sorted by document number. Once tombstones pass
+ * {@link #COMPACT_FRACTION} of the documents the live ones are re-indexed in the background, so
+ * steady updates do not grow the index. Like {@link #rebuild()}, the compacted index is built
+ * without the lock and swapped in; items changed meanwhile are re-applied to it first.
+ */
+@Component
+public class ItemSearchIndex {
+
+	private static final Logger log = LogManager.getLogger(ItemSearchIndex.class);
+
+	static final int MIN_GRAM = 2;
+	static final int MAX_GRAM = 12;
+	private static final int REBUILD_BATCH_SIZE = 1000;
+	static final double COMPACT_FRACTION = 0.25;
+	// Below this many tombstones compacting costs more than the dead postings do.
+	static final int MIN_COMPACT_TOMBSTONES = 64;
+
+	// Posting kinds, stored in the low two bits of each posting entry.
+	private static final int NAME_WORD = 0;
+	private static final int NAME_PREFIX = 1;
+	private static final int DESCRIPTION_WORD = 2;
+	private static final int DESCRIPTION_PREFIX = 3;
+	private static final int[] KIND_SCORES = {8, 4, 2, 1};
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private ItemRepository itemRepository;
+	private Executor compactor;
+
+	private Map<String, Postings> postings = new HashMap<>();
+	private Item[] documents = new Item[16];
+	private int documentCount;
+	private BitSet deleted = new BitSet();
+	private int tombstones;
+	private Map<Long, Integer> documentByItemId = new HashMap<>();
+	// Items changed while a compaction runs, in the order of their last change; null when none runs.
+	private Set<Long> changedDuringCompaction;
+
+	@Autowired
+	public ItemSearchIndex(ItemRepository itemRepository) {
+		this(itemRepository, compactorThread());
+	}
+
+	public ItemSearchIndex(ItemRepository itemRepository, Executor compactor) {
+		this.itemRepository = itemRepository;
+		this.compactor = compactor;
+	}
+
+	ItemSearchIndex() {
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		ItemSearchIndex fresh = new ItemSearchIndex();
+		long after = 0;
+		List<Item> batch;
+		do {
+			batch = itemRepository.findDetachedByIdGreaterThan(after, PageRequest.of(0, REBUILD_BATCH_SIZE));
+			for (Item item : batch) {
+				fresh.put(item);
+				after = item.getId();
+			}
+		} while (batch.size() == REBUILD_BATCH_SIZE);
+
+		lock.writeLock().lock();
+		try {
+			replaceWith(fresh);
+			// A compaction still running started from the old state; it is dropped when it finishes.
+			changedDuringCompaction = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Item search index rebuilt with {} items and {} terms", fresh.documentByItemId.size(), fresh.postings.size());
+	}
+
+	/**
+	 * Adds or replaces the indexed copy of an item.
+	 */
+	public void put(Item item) {
+		Item copy = new Item(item.getId(), item.getName(), item.getPrice(), item.getDescription());
+		Runnable compaction;
+		lock.writeLock().lock();
+		try {
+			removeDocument(copy.getId());
+			append(copy);
+			compaction = changed(copy.getId());
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (compaction != null) {
+			compactor.execute(compaction);
+		}
+	}
+
+	public void remove(Long itemId) {
+		Runnable compaction;
+		lock.writeLock().lock();
+		try {
+			removeDocument(itemId);
+			compaction = changed(itemId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (compaction != null) {
+			compactor.execute(compaction);
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documentByItemId.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of replaced or removed documents whose postings have not been compacted away yet.
+	 */
+	public int tombstones() {
+		lock.readLock().lock();
+		try {
+			return tombstones;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Whether {@code query} has at least one token and no token shorter than {@value #MIN_GRAM}
+	 * characters, which the index cannot look up as a prefix.
+	 */
+	public static boolean isSearchable(String query) {
+		List<String> tokens = tokenize(query);
+		return !tokens.isEmpty() && tokens.stream().allMatch(token -> token.length() >= MIN_GRAM);
+	}
+
+	/**
+	 * Returns one page of the items matching every token of {@code query}, best match first.
+	 * Callers check {@link #isSearchable} first; {@code /api/item/search} answers a query with a
+	 * token shorter than {@value #MIN_GRAM} characters with 400.
+	 */
+	public SearchResult search(String query, int page, int size) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty()) {
+			return new SearchResult(Collections.emptyList(), 0);
+		}
+		lock.readLock().lock();
+		try {
+			Postings[][] found = new Postings[tokens.size()][];
+			Integer[] order = new Integer[tokens.size()];
+			for (int i = 0; i < tokens.size(); i++) {
+				String token = tokens.get(i);
+				Postings word = postings.get(token);
+				String indexed = token.length() > MAX_GRAM ? token.substring(0, MAX_GRAM) : token;
+				Postings prefix = postings.get(prefixKey(indexed));
+				if (word == null && prefix == null) {
+					return new SearchResult(Collections.emptyList(), 0);
+				}
+				found[i] = new Postings[]{word, prefix};
+				order[i] = i;
+			}
+			// Drive the intersection from the most selective token.
+			Arrays.sort(order, (a, b) -> Integer.compare(length(found[a]), length(found[b])));
+			Postings[][] lists = new Postings[order.length][];
+			// Tokens past MAX_GRAM were looked up by a shorter prefix, so their prefix hits are checked.
+			String[] unindexedPrefixes = new String[order.length];
+			for (int t = 0; t < order.length; t++) {
+				lists[t] = found[order[t]];
+				String token = tokens.get(order[t]);
+				unindexedPrefixes[t] = token.length() > MAX_GRAM ? token : null;
+			}
+
+			long[] hits = new long[16];
+			int hitCount = 0;
+			int[] cursors = new int[lists.length * 2];
+			Postings[] driver = lists[0];
+			int i = 0;
+			int j = 0;
+			while (true) {
+				int document = nextDocument(driver, i, j);
+				if (document < 0) {
+					break;
+				}
+				int score = 0;
+				boolean matchesAll = true;
+				for (int t = 0; t < lists.length && matchesAll; t++) {
+					int best = 0;
+					for (int p = 0; p < 2; p++) {
+						Postings list = lists[t][p];
+						if (list != null) {
+							int cursor = list.seek(document, cursors[t * 2 + p]);
+							cursors[t * 2 + p] = cursor;
+							for (int c = cursor; c < list.size && list.entries[c] >>> 2 == document; c++) {
+								int kind = p == 1 && unindexedPrefixes[t] != null
+										? prefixKind(documents[document], unindexedPrefixes[t])
+										: list.entries[c] & 3;
+								if (kind >= 0) {
+									best = Math.max(best, KIND_SCORES[kind]);
+								}
+							}
+						}
+					}
+					matchesAll = best > 0;
+					score += best;
+				}
+				if (matchesAll && !deleted.get(document)) {
+					if (hitCount == hits.length) {
+						hits = Arrays.copyOf(hits, hits.length * 2);
+					}
+					hits[hitCount++] = ((long) score << 32) | (Integer.MAX_VALUE - document);
+				}
+				i = skip(driver[0], i, document);
+				j = skip(driver[1], j, document);
+			}
+
+			Arrays.sort(hits, 0, hitCount);
+			int from = page * size;
+			int to = Math.min(hitCount, from + size);
+			List<Item> items = new ArrayList<>(Math.max(0, to - from));
+			for (int h = from; h < to; h++) {
+				int document = Integer.MAX_VALUE - (int) hits[hitCount - 1 - h];
+				items.add(documents[document]);
+			}
+			return new SearchResult(items, hitCount);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		if (text == null) {
+			return Collections.emptyList();
+		}
+		Set<String> tokens = new LinkedHashSet<>();
+		for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return new ArrayList<>(tokens);
+	}
+
+	// Where {@code prefix} begins a longer word of the item, or -1 if it begins none.
+	private static int prefixKind(Item item, String prefix) {
+		if (item == null) {
+			return -1;
+		}
+		if (startsWord(item.getName(), prefix)) {
+			return NAME_PREFIX;
+		}
+		return startsWord(item.getDescription(), prefix) ? DESCRIPTION_PREFIX : -1;
+	}
+
+	private static boolean startsWord(String text, String prefix) {
+		for (String word : tokenize(text)) {
+			if (word.length() > prefix.length() && word.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void append(Item copy) {
+		int document = documentCount++;
+		if (document == documents.length) {
+			documents = Arrays.copyOf(documents, documents.length * 2);
+		}
+		documents[document] = copy;
+		documentByItemId.put(copy.getId(), document);
+
+		Set<String> seen = new LinkedHashSet<>();
+		indexField(copy.getName(), document, NAME_WORD, NAME_PREFIX, seen);
+		indexField(copy.getDescription(), document, DESCRIPTION_WORD, DESCRIPTION_PREFIX, seen);
+	}
+
+	// Records a change to {@code itemId} for a running compaction, or, once enough tombstones have
+	// piled up, returns a compaction of the current documents. Callers hold the write lock.
+	private Runnable changed(Long itemId) {
+		if (changedDuringCompaction != null) {
+			changedDuringCompaction.remove(itemId);
+			changedDuringCompaction.add(itemId);
+			return null;
+		}
+		if (tombstones < MIN_COMPACT_TOMBSTONES || tombstones < documentCount * COMPACT_FRACTION) {
+			return null;
+		}
+		Set<Long> changes = new LinkedHashSet<>();
+		changedDuringCompaction = changes;
+		Item[] live = Arrays.copyOf(documents, documentCount);
+		return () -> compact(live, changes);
+	}
+
+	// Re-indexes the live documents in their current order, so ties still rank oldest first, then
+	// re-applies the items changed since and swaps the result in. Only the swap holds the lock.
+	private void compact(Item[] live, Set<Long> changes) {
+		ItemSearchIndex fresh = new ItemSearchIndex();
+		for (Item item : live) {
+			if (item != null) {
+				fresh.append(item);
+			}
+		}
+		lock.writeLock().lock();
+		try {
+			if (changedDuringCompaction != changes) {
+				return;
+			}
+			for (Long itemId : changes) {
+				fresh.removeDocument(itemId);
+				Integer document = documentByItemId.get(itemId);
+				if (document != null) {
+					fresh.append(documents[document]);
+				}
+			}
+			log.debug("Item search index compacted, {} tombstones dropped", tombstones - fresh.tombstones);
+			changedDuringCompaction = null;
+			replaceWith(fresh);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// At most one compaction runs at a time, so one thread is enough; it exits when idle.
+	private static Executor compactorThread() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "item-index-compactor");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private void replaceWith(ItemSearchIndex fresh) {
+		postings = fresh.postings;
+		documents = fresh.documents;
+		documentCount = fresh.documentCount;
+		deleted = fresh.deleted;
+		tombstones = fresh.tombstones;
+		documentByItemId = fresh.documentByItemId;
+	}
+
+	private void indexField(String text, int document, int wordKind, int prefixKind, Set<String> seen) {
+		for (String token : tokenize(text)) {
+			addPosting(token, document, wordKind, seen);
+			for (int n = MIN_GRAM; n < token.length() && n <= MAX_GRAM; n++) {
+				addPosting(prefixKey(token.substring(0, n)), document, prefixKind, seen);
+			}
+		}
+	}
+
+	// Name postings are indexed first, so a term already seen for this document carries the
+	// better score and the description posting can be skipped.
+	private void addPosting(String key, int document, int kind, Set<String> seen) {
+		if (seen.add(key)) {
+			postings.computeIfAbsent(key, k -> new Postings()).add((document << 2) | kind);
+		}
+	}
+
+	private void removeDocument(Long itemId) {
+		Integer document = documentByItemId.remove(itemId);
+		if (document != null) {
+			deleted.set(document);
+			documents[document] = null;
+			tombstones++;
+		}
+	}
+
+	private static String prefixKey(String prefix) {
+		return prefix + '*';
+	}
+
+	private static int length(Postings[] lists) {
+		return (lists[0] == null ? 0 : lists[0].size) + (lists[1] == null ? 0 : lists[1].size);
+	}
+
+	private static int nextDocument(Postings[] lists, int i, int j) {
+		int a = lists[0] != null && i < lists[0].size ? lists[0].entries[i] >>> 2 : -1;
+		int b = lists[1] != null && j < lists[1].size ? lists[1].entries[j] >>> 2 : -1;
+		if (a < 0) {
+			return b;
+		}
+		return b < 0 ? a : Math.min(a, b);
+	}
+
+	private static int skip(Postings list, int cursor, int document) {
+		if (list == null) {
+			return cursor;
+		}
+		while (cursor < list.size && list.entries[cursor] >>> 2 <= document) {
+			cursor++;
+		}
+		return cursor;
+	}
+
+	/**
+	 * Posting entries ({@code document << 2 | kind}) in ascending document order.
+	 */
+	private static final class Postings {
+		private int[] entries = new int[4];
+		private int size;
+
+		void add(int entry) {
+			if (size == entries.length) {
+				entries = Arrays.copyOf(entries, size * 2);
+			}
+			entries[size++] = entry;
+		}
+
+		// First position at or after {@code from} whose document is >= {@code document}.
+		int seek(int document, int from) {
+			int low = from;
+			int high = size;
+			int target = document << 2;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (entries[mid] < target) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	public static class SearchResult {
+		private final List<Item> items;
+		private final int total;
+
+		public SearchResult(List<Item> items, int total) {
+			this.items = items;
+			this.total = total;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.security;
+
+import java.security.Principal;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * The caller named by a verified token: its username plus the user and cart ids that were
+ * signed into it at login. Tokens issued before the ids were added carry only the username.
+ */
+public class AuthenticatedUser implements Principal {
+
+    private final String username;
+    private final Long userId;
+    private final Long cartId;
+
+    public AuthenticatedUser(String username, Long userId, Long cartId) {
+        this.username = username;
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    /**
+     * The current caller if it is {@code username} and its token carries the ids, otherwise
+     * {@code null}, in which case the user has to be looked up by name.
+     */
+    public static AuthenticatedUser current(String username) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser)) {
+            return null;
+        }
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return user.username.equals(username) && user.userId != null && user.cartId != null ? user : null;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.security;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+/**
+ * Finds a user's id or cart for the controllers. The caller's own ids come from its token (see
+ * {@link AuthenticatedUser}), so its orders are found without reading the user and its cart is read
+ * by primary key together with its lines, items and user; anyone else is looked up by username.
+ */
+@Component
+public class CurrentUserLookup {
+
+    private final UserRepository userRepository;
+    private final CartRepository cartRepository;
+
+    public CurrentUserLookup(UserRepository userRepository, CartRepository cartRepository) {
+        this.userRepository = userRepository;
+        this.cartRepository = cartRepository;
+    }
+
+    /**
+     * The id of {@code username}, or {@code null} if there is no such user.
+     */
+    public Long findUserId(String username) {
+        AuthenticatedUser principal = AuthenticatedUser.current(username);
+        if (principal != null) {
+            return principal.getUserId();
+        }
+        User user = userRepository.findByUsername(username);
+        return user == null ? null : user.getId();
+    }
+
+    /**
+     * The cart of {@code username}, or {@code null} if there is no such user.
+     */
+    public Cart findCart(String username) {
+        AuthenticatedUser principal = AuthenticatedUser.current(username);
+        if (principal != null) {
+            return cartRepository.findWithLinesById(principal.getCartId()).orElse(null);
+        }
+        User user = userRepository.findByUsername(username);
+        return user == null ? null : user.getCart();
+    }
+}
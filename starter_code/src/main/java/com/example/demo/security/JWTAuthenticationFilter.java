@@ -3,12 +3,15 @@ package com.example.demo.security;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -16,31 +19,53 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
 import com.example.demo.model.persistence.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private AuthenticationManager authenticationManager;
+    private final Timer loginSucceeded;
+    private final Timer loginFailed;
+    private final Timer loginRejected;
+    private final Timer tokenIssued;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, MeterRegistry meterRegistry) {
         this.authenticationManager = authenticationManager;
+        this.loginSucceeded = SecurityMetrics.loginTimer(meterRegistry, "SUCCESS");
+        this.loginFailed = SecurityMetrics.loginTimer(meterRegistry, "FAILURE");
+        this.loginRejected = SecurityMetrics.loginTimer(meterRegistry, "REJECTED");
+        this.tokenIssued = SecurityMetrics.jwtTimer(meterRegistry, "issue", "SUCCESS");
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest req,
                                                 HttpServletResponse res) throws AuthenticationException {
+        long start = System.nanoTime();
         try {
             User credentials = new ObjectMapper()
                     .readValue(req.getInputStream(), User.class);
 
-            return authenticationManager.authenticate(
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             credentials.getUsername(),
                             credentials.getPassword(),
                             new ArrayList<>()));
+            loginSucceeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return authentication;
+        } catch (PasswordHashingRejectedException e) {
+            loginRejected.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // Returning null ends the filter chain with the response written here.
+            res.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            res.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return null;
+        } catch (AuthenticationException e) {
+            loginFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -52,10 +77,21 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        String token = JWT.create()
-                .withSubject(((org.springframework.security.core.userdetails.User) auth.getPrincipal()).getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
-                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+        long start = System.nanoTime();
+        org.springframework.security.core.userdetails.User principal =
+                (org.springframework.security.core.userdetails.User) auth.getPrincipal();
+        JWTCreator.Builder builder = JWT.create()
+                .withSubject(principal.getUsername())
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME));
+        if (principal instanceof UserAccount) {
+            UserAccount account = (UserAccount) principal;
+            builder.withClaim(SecurityConstants.USER_ID_CLAIM, account.getUserId());
+            if (account.getCartId() != null) {
+                builder.withClaim(SecurityConstants.CART_ID_CLAIM, account.getCartId());
+            }
+        }
+        String token = builder.sign(JWTTokenVerifier.ALGORITHM);
         res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        tokenIssued.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 }
@@ -2,6 +2,7 @@ package com.example.demo.security;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -14,15 +15,23 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.stereotype.Component;
 
-import com.auth0.jwt.JWT;
-
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilter {
 
-    public JWTAuthenticationVerficationFilter(AuthenticationManager authManager) {
+    // Shared by every filter instance, so a token verified once is recognised on any request.
+    private static final JWTTokenVerifier TOKEN_VERIFIER =
+            new JWTTokenVerifier(SecurityConstants.VERIFIED_TOKEN_CACHE_SIZE);
+
+    private final Timer verified;
+    private final Timer rejected;
+
+    public JWTAuthenticationVerficationFilter(AuthenticationManager authManager, MeterRegistry meterRegistry) {
         super(authManager);
+        this.verified = SecurityMetrics.jwtTimer(meterRegistry, "verify", "SUCCESS");
+        this.rejected = SecurityMetrics.jwtTimer(meterRegistry, "verify", "FAILURE");
     }
 
     @Override
@@ -44,9 +53,13 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
     private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest req) {
         String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
-            String user = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
+            long start = System.nanoTime();
+            AuthenticatedUser user = null;
+            try {
+                user = TOKEN_VERIFIER.verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""));
+            } finally {
+                (user != null ? verified : rejected).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
             if (user != null) {
                 return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
             }
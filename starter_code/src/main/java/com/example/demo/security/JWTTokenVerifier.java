@@ -0,0 +1,99 @@
+package com.example.demo.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Verifies bearer tokens once and remembers the caller they name. Tokens are keyed by their SHA-256
+ * digest, and each entry expires when its token does, so a cached token is never accepted
+ * past its {@code exp}.
+ */
+public class JWTTokenVerifier {
+
+    public static final Algorithm ALGORITHM = Algorithm.HMAC512(SecurityConstants.SECRET.getBytes());
+
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Cache<ByteBuffer, VerifiedToken> verified;
+
+    public JWTTokenVerifier(long maximumSize) {
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<ByteBuffer, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer digest, VerifiedToken token, long currentTime) {
+                        long remaining = token.expiresAt - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer digest, VerifiedToken token, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(digest, token, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer digest, VerifiedToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the caller named by {@code token}, verifying its signature and expiry only on first sight.
+     *
+     * @throws com.auth0.jwt.exceptions.JWTVerificationException if the token is not valid
+     */
+    public AuthenticatedUser verify(String token) {
+        ByteBuffer digest = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        VerifiedToken cached = verified.getIfPresent(digest);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached.user;
+        }
+        DecodedJWT decoded = VERIFIER.verify(token);
+        Date expiresAt = decoded.getExpiresAt();
+        long expiry = expiresAt != null ? expiresAt.getTime()
+                : System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME;
+        AuthenticatedUser user = decoded.getSubject() == null ? null : new AuthenticatedUser(decoded.getSubject(),
+                decoded.getClaim(SecurityConstants.USER_ID_CLAIM).asLong(),
+                decoded.getClaim(SecurityConstants.CART_ID_CLAIM).asLong());
+        verified.put(digest, new VerifiedToken(user, expiry));
+        return user;
+    }
+
+    public long size() {
+        return verified.estimatedSize();
+    }
+
+    private static final class VerifiedToken {
+        private final AuthenticatedUser user;
+        private final long expiresAt;
+
+        VerifiedToken(AuthenticatedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
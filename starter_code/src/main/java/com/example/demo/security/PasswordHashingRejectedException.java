@@ -0,0 +1,12 @@
+package com.example.demo.security;
+
+/**
+ * Thrown when the password hashing pool and its queue are both full. Callers answer with
+ * 503 Service Unavailable instead of waiting.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException() {
+        super("Password hashing capacity exhausted");
+    }
+}
@@ -7,4 +7,9 @@ public class SecurityConstants {
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String HEALTH_URL = "/actuator/health";
+    public static final String METRICS_URL = "/actuator/prometheus";
+    public static final long VERIFIED_TOKEN_CACHE_SIZE = 100_000;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CART_ID_CLAIM = "cid";
 }
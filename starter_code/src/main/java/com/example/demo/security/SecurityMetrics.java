@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters shared by the JWT filters. Each filter registers its timers once, when it is built.
+ */
+final class SecurityMetrics {
+
+    private SecurityMetrics() {
+    }
+
+    static Timer jwtTimer(MeterRegistry registry, String operation, String outcome) {
+        return Timer.builder("api.security.jwt")
+                .description("Time to issue or verify a bearer token")
+                .tags("operation", operation, "outcome", outcome)
+                .register(registry);
+    }
+
+    static Timer loginTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("api.security.login")
+                .description("Time to check login credentials, including the password hash")
+                .tags("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import java.util.Collections;
+
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Login-time user details, keeping the ids that {@link JWTAuthenticationFilter} signs into the token.
+ */
+public class UserAccount extends User {
+
+    private final long userId;
+    private final Long cartId;
+
+    public UserAccount(String username, String password, long userId, Long cartId) {
+        super(username, password, Collections.emptyList());
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+}
@@ -1,13 +1,13 @@
 package com.example.demo.security;
 
-import java.util.Collections;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.datasource.ShardContext;
+import com.example.demo.datasource.ShardMap;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
 
@@ -17,12 +17,20 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired(required = false)
+    private ShardMap shardMap;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        // Login runs in the security filters, before any handler has picked a shard. It skips the
+        // username filter, which may not know a user created by another instance yet.
+        Integer shard = shardMap == null ? null : shardMap.shardOf(username);
+        User user = shard == null ? userRepository.findByUsernameUnfiltered(username)
+                : ShardContext.call(shard, () -> userRepository.findByUsernameUnfiltered(username));
         if (user == null) {
             throw new UsernameNotFoundException(username);
         }
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
+        Long cartId = user.getCart() == null ? null : user.getCart().getId();
+        return new UserAccount(user.getUsername(), user.getPassword(), user.getId(), cartId);
     }
 }
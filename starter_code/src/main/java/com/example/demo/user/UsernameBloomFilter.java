@@ -0,0 +1,302 @@
+package com.example.demo.user;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.datasource.ShardContext;
+import com.example.demo.datasource.ShardMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bloom filter over every username, so a lookup for a name that was never registered can be
+ * answered without a query. {@link #mightContain} never says no for an existing user; it says
+ * yes for a missing one at about the configured false-positive rate.
+ *
+ * <p>Names are added before their insert is flushed. A filter cannot forget, so renamed and
+ * deleted names stay in it until the next {@link #rebuild()}, which also resizes it once more
+ * users exist than it was sized for. Until the first rebuild every name is reported as present.
+ * With sharding on, the filter covers every shard.
+ *
+ * <p>Only users created through this process are added as they are saved. Users created by another
+ * instance or directly in the database are picked up by a rebuild every
+ * {@code app.user.bloom.rebuild-interval} ({@code 0} turns it off); until then they are reported
+ * missing, except to login, which checks the database (see
+ * {@link com.example.demo.model.persistence.repositories.UsernameLookup#findByUsernameUnfiltered}).
+ */
+@Component
+public class UsernameBloomFilter {
+
+	private static final Logger log = LogManager.getLogger(UsernameBloomFilter.class);
+
+	private static final int REBUILD_BATCH_SIZE = 10_000;
+	// Longer than any transaction that creates a user is expected to stay open.
+	private static final long RECENT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+	private final JdbcTemplate jdbcTemplate;
+	private final long expectedUsers;
+	private final double falsePositiveRate;
+	private final Duration rebuildInterval;
+	private final Counter negatives;
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	private final Deque<Addition> recent = new ConcurrentLinkedDeque<>();
+
+	@Autowired(required = false)
+	private ShardMap shardMap;
+
+	private volatile Bits current;
+	// Receives additions while a rebuild is reading the user table, so none are lost in the swap.
+	private volatile Bits next;
+
+	private ScheduledExecutorService rebuilder;
+
+	public UsernameBloomFilter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+			@Value("${app.user.bloom.expected-users:100000}") long expectedUsers,
+			@Value("${app.user.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${app.user.bloom.rebuild-interval:10m}") Duration rebuildInterval) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.expectedUsers = expectedUsers;
+		this.falsePositiveRate = falsePositiveRate;
+		this.rebuildInterval = rebuildInterval;
+		this.negatives = Counter.builder("users.bloom.negatives")
+				.description("Username lookups answered as definite misses without a query")
+				.register(meterRegistry);
+		Gauge.builder("users.bloom.memory", this, filter -> filter.current == null ? 0 : filter.current.bytes())
+				.baseUnit("bytes")
+				.register(meterRegistry);
+		Gauge.builder("users.bloom.false.positive.rate", this, UsernameBloomFilter::estimatedFalsePositiveRate)
+				.register(meterRegistry);
+	}
+
+	public boolean mightContain(String username) {
+		Bits bits = current;
+		if (bits == null || username == null || bits.mightContain(username)) {
+			return true;
+		}
+		negatives.increment();
+		return false;
+	}
+
+	public void add(String username) {
+		long now = System.nanoTime();
+		recent.addLast(new Addition(username, now));
+		for (Addition oldest = recent.peekFirst(); oldest != null && now - oldest.addedAt > RECENT_WINDOW_NANOS;
+				oldest = recent.peekFirst()) {
+			recent.remove(oldest);
+		}
+		Bits bits = current;
+		if (bits != null) {
+			bits.put(username);
+		}
+		Bits building = next;
+		if (building != null) {
+			building.put(username);
+		}
+		if (bits != null && bits.count() > bits.capacity && rebuilding.compareAndSet(false, true)) {
+			CompletableFuture.runAsync(this::rebuildNow);
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		if (rebuildInterval.isZero()) {
+			return;
+		}
+		rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "username-filter-rebuild");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = rebuildInterval.toMillis();
+		rebuilder.scheduleWithFixedDelay(this::scheduledRebuild, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (rebuilder != null) {
+			rebuilder.shutdownNow();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		while (!rebuilding.compareAndSet(false, true)) {
+			Thread.yield();
+		}
+		rebuildNow();
+	}
+
+	// Skipped if a rebuild is already running; a failure must not cancel the schedule.
+	private void scheduledRebuild() {
+		if (!rebuilding.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			rebuildNow();
+		} catch (RuntimeException e) {
+			log.warn("Scheduled username filter rebuild failed", e);
+		}
+	}
+
+	// Called with the rebuilding flag held.
+	private void rebuildNow() {
+		try {
+			int shards = shardMap == null ? 1 : shardMap.shardCount();
+			long users = 0;
+			for (int shard = 0; shard < shards; shard++) {
+				Long count = ShardContext.call(shard,
+						() -> jdbcTemplate.queryForObject("select count(*) from user", Long.class));
+				users += count == null ? 0 : count;
+			}
+			long capacity = Math.max(expectedUsers, 2 * users);
+			Bits fresh = new Bits(capacity, falsePositiveRate);
+			next = fresh;
+			for (int shard = 0; shard < shards; shard++) {
+				ShardContext.run(shard, () -> scan(fresh));
+			}
+			// A name added just before the scan started may belong to a row committed after the
+			// scan passed it; replaying recent additions covers that window.
+			for (Addition addition : recent) {
+				fresh.put(addition.username);
+			}
+			current = fresh;
+			next = null;
+			log.info("Username filter rebuilt: {} users, {} KiB, {} hash functions, {} expected false-positive rate",
+					fresh.count(), fresh.bytes() / 1024, fresh.hashes, String.format("%.4f", estimatedFalsePositiveRate()));
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+
+	private void scan(Bits fresh) {
+		long after = 0;
+		List<Object[]> batch;
+		do {
+			batch = jdbcTemplate.query("select id, username from user where id > ? order by id limit ?",
+					(rs, row) -> new Object[]{rs.getLong(1), rs.getString(2)}, after, REBUILD_BATCH_SIZE);
+			for (Object[] user : batch) {
+				fresh.put((String) user[1]);
+				after = (Long) user[0];
+			}
+		} while (batch.size() == REBUILD_BATCH_SIZE);
+	}
+
+	/**
+	 * False-positive rate implied by the filter's current fill, {@code (1 - e^(-kn/m))^k}.
+	 */
+	public double estimatedFalsePositiveRate() {
+		Bits bits = current;
+		if (bits == null) {
+			return 1;
+		}
+		return Math.pow(1 - Math.exp(-(double) bits.hashes * bits.count() / bits.size), bits.hashes);
+	}
+
+	public long memoryBytes() {
+		Bits bits = current;
+		return bits == null ? 0 : bits.bytes();
+	}
+
+	private static final class Addition {
+		private final String username;
+		private final long addedAt;
+
+		Addition(String username, long addedAt) {
+			this.username = username;
+			this.addedAt = addedAt;
+		}
+	}
+
+	private static final class Bits {
+		private final AtomicLongArray words;
+		private final long size;
+		private final int hashes;
+		private final long capacity;
+		private final AtomicLong count = new AtomicLong();
+
+		Bits(long capacity, double falsePositiveRate) {
+			long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			int wordCount = (int) Math.max(1, (bits + 63) / 64);
+			this.words = new AtomicLongArray(wordCount);
+			this.size = wordCount * 64L;
+			this.hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+			this.capacity = capacity;
+		}
+
+		void put(String value) {
+			long hash = hash(value);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashes; i++) {
+				long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+				long mask = 1L << bit;
+				int word = (int) (bit >>> 6);
+				long old;
+				do {
+					old = words.get(word);
+				} while ((old & mask) == 0 && !words.compareAndSet(word, old, old | mask));
+			}
+			count.incrementAndGet();
+		}
+
+		boolean mightContain(String value) {
+			long hash = hash(value);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 1; i <= hashes; i++) {
+				long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+				if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		long count() {
+			return count.get();
+		}
+
+		long bytes() {
+			return size / 8;
+		}
+
+		// FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 64-bit mixer.
+		private static long hash(String value) {
+			long hash = 0xcbf29ce484222325L;
+			for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= b & 0xff;
+				hash *= 0x100000001b3L;
+			}
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			hash *= 0xc4ceb9fe1a85ec53L;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+	}
+}
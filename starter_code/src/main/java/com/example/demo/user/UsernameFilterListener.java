@@ -0,0 +1,29 @@
+package com.example.demo.user;
+
+import javax.persistence.PrePersist;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * Adds every new username to {@link UsernameBloomFilter} before the row is inserted, so the filter
+ * never answers "no" for a user another request can already see. If the transaction rolls back
+ * the name just stays in the filter as a false positive. Updates are not listened to: usernames
+ * do not change after sign-up, and adding on every update would only inflate the filter's count
+ * and trigger needless rebuilds.
+ */
+public class UsernameFilterListener {
+
+	@Autowired
+	private ObjectProvider<UsernameBloomFilter> usernameFilter;
+
+	@PrePersist
+	public void onSave(User user) {
+		UsernameBloomFilter filter = usernameFilter == null ? null : usernameFilter.getIfAvailable();
+		if (filter != null && user.getUsername() != null) {
+			filter.add(user.getUsername());
+		}
+	}
+}
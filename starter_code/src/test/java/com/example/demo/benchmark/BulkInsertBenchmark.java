@@ -0,0 +1,136 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second for bulk signup (a user and its cart per row) and for order submission (an order
+ * of {@value #ORDER_LINES} lines per row), each written in one transaction of {@value #ROWS} rows.
+ * {@code batchSize=1} sends every insert on its own round trip, as the IDENTITY ids did;
+ * {@code batchSize=50} is the configured JDBC batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 500;
+    private static final int ORDER_LINES = 10;
+    // Signups here skip BCrypt so that only the inserts are measured.
+    private static final String PASSWORD_HASH = "not-a-real-hash";
+
+    @Param({"1", "50"})
+    private String batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userRepository;
+    private OrderRepository orderRepository;
+    private Cart cart;
+    private long signups;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "logging.level.com.example=WARN",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize)
+                .run();
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        userRepository = context.getBean(UserRepository.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        ItemRepository itemRepository = context.getBean(ItemRepository.class);
+        cart = transactionTemplate.execute(status -> {
+            User user = user("bulkInsertOrderUser");
+            for (int i = 0; i < ORDER_LINES; i++) {
+                Item item = new Item();
+                item.setName("Bulk insert item " + i);
+                item.setPrice(BigDecimal.valueOf(i + 1));
+                item.setDescription("An item for the bulk insert benchmark");
+                user.getCart().addItem(itemRepository.save(item));
+            }
+            return userRepository.save(user).getCart();
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() {
+        jdbcTemplate.update("delete from order_line");
+        jdbcTemplate.update("delete from user_order");
+        jdbcTemplate.update("delete from user where username like 'bulkSignup%'");
+        jdbcTemplate.update("delete from cart where id not in (select cart_id from user)");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void signup() {
+        transactionTemplate.execute(status -> {
+            List<User> users = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                users.add(user("bulkSignup" + signups++));
+            }
+            return userRepository.saveAll(users);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void submitOrders() {
+        transactionTemplate.execute(status -> {
+            List<UserOrder> orders = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                orders.add(UserOrder.createFromCart(cart));
+            }
+            return orderRepository.saveAll(orders);
+        });
+    }
+
+    private static User user(String username) {
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(PASSWORD_HASH);
+        user.setCart(cart);
+        cart.setUser(user);
+        return user;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cost of the cart operations behind {@code /api/cart} and order submission, at several
+ * cart sizes. Each add is paired with the matching remove so the cart keeps its size across
+ * invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int cartSize;
+
+    private Cart cart;
+    private Item newItem;
+    private Item existingItem;
+
+    @Setup
+    public void setUp() {
+        cart = Fixtures.cart(cartSize);
+        newItem = Fixtures.item(cartSize + 1);
+        existingItem = Fixtures.item(cartSize);
+    }
+
+    @Benchmark
+    public Cart addAndRemoveNewLine() {
+        cart.addItem(newItem);
+        cart.removeItem(newItem);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart addAndRemoveExistingLine() {
+        cart.addItem(existingItem);
+        cart.removeItem(existingItem);
+        return cart;
+    }
+
+    @Benchmark
+    public UserOrder createOrderFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+
+import java.math.BigDecimal;
+
+/**
+ * Detached carts and items shaped like the ones the controllers work with.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Item item(long id) {
+        return new Item(id, "Item " + id, BigDecimal.valueOf(id % 100 + 1, 2), "Benchmark item " + id);
+    }
+
+    // A cart holding one line of quantity 1 for each of items 1..lines.
+    static Cart cart(int lines) {
+        User user = new User();
+        user.setId(1);
+        user.setUsername("benchmarkUser");
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        user.setCart(cart);
+        for (long id = 1; id <= lines; id++) {
+            cart.addItem(item(id));
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.controllers.ItemController;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The legacy full-table listing against the keyset page and the streaming listing as the catalog
+ * grows. Time per call is the headline; add {@code -prof gc} to the JMH arguments to see
+ * allocation per call, which should stay flat for the keyset page while {@code findAll} grows
+ * with the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dapp.log.dir=target/benchmark-logs", "-Dapp.log.console-level=OFF"})
+public class ItemListingBenchmark {
+
+    @Param({"10000", "50000", "200000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ItemController itemController;
+    private ItemRepository itemRepository;
+    private long after;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0")
+                .run();
+        itemController = context.getBean(ItemController.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= catalogSize; i++) {
+            rows.add(new Object[]{"Bench Item " + i, BigDecimal.valueOf(i % 1000, 2), "Benchmark catalog entry " + i});
+            if (rows.size() == 5_000 || i == catalogSize) {
+                jdbcTemplate.batchUpdate("insert into item (id, name, price, description) "
+                        + "values (next value for item_seq, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        // Sequence ids step by the allocation size, so find the middle row rather than computing it.
+        after = jdbcTemplate.queryForObject("select id from item order by id limit 1 offset ?",
+                Long.class, catalogSize / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Item> findAll() {
+        return itemRepository.findAll();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Item>> keysetPage() {
+        return itemController.getItems(after, ItemController.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        itemController.streamItems().getBody().writeTo(out);
+        return out.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
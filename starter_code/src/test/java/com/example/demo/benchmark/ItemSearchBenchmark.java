@@ -0,0 +1,114 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Query latency of {@link ItemSearchIndex} against the {@code LIKE} scan a search would need
+ * without it, over the same generated catalog of a hundred thousand and of a million items, held
+ * in an in-memory H2 item table for the {@code LIKE} side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemSearchBenchmark {
+
+    private static final String[] ADJECTIVES = {"round", "square", "blue", "red", "large", "small", "steel",
+            "wooden", "smart", "vintage", "compact", "deluxe", "portable", "heavy", "silent", "rapid"};
+    private static final String[] NOUNS = {"widget", "gadget", "sprocket", "lamp", "chair", "kettle", "drill",
+            "speaker", "blender", "router", "camera", "backpack", "monitor", "keyboard", "helmet", "scooter"};
+
+    @Param({"100000", "1000000"})
+    private int items;
+
+    @Param({"widget", "wid", "blue lamp", "vintage cam", "sprocket 4711", "deluxe heavy", "keyb",
+            "silent rapid router"})
+    private String query;
+
+    private ItemSearchIndex index;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private String likeSql;
+    private Object[] likeArgs;
+
+    @Setup
+    public void setUp() {
+        index = new ItemSearchIndex(mock(ItemRepository.class), Runnable::run);
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:item-search-benchmark", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table item (id bigint primary key, name varchar(255), "
+                + "price decimal(19, 2), description varchar(255))");
+
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= items; id++) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            String other = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            Item item = new Item(id, capitalize(adjective) + " " + capitalize(noun) + " " + id,
+                    BigDecimal.valueOf(random.nextInt(100_000), 2), "A " + other + " " + noun + " that is " + adjective);
+            index.put(item);
+            rows.add(new Object[]{item.getId(), item.getName(), item.getPrice(), item.getDescription()});
+            if (rows.size() == 10_000 || id == items) {
+                jdbcTemplate.batchUpdate("insert into item (id, name, price, description) values (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("select id from item where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        for (String token : query.split(" ")) {
+            sql.append(" and (lower(name) like ? or lower(description) like ?)");
+            args.add("%" + token + "%");
+            args.add("%" + token + "%");
+        }
+        likeSql = sql.append(" order by id limit 20").toString();
+        likeArgs = args.toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public ItemSearchIndex.SearchResult index() {
+        return index.search(query, 0, 20);
+    }
+
+    // What a search would have to do without the index: a LIKE scan per query token.
+    @Benchmark
+    public List<Long> databaseLike() {
+        return jdbcTemplate.queryForList(likeSql, Long.class, likeArgs);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
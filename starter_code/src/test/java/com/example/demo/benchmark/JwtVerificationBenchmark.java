@@ -0,0 +1,95 @@
+package com.example.demo.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.example.demo.security.JWTAuthenticationVerficationFilter;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * Per-request cost of authenticating a bearer token: the previous filter code, which built an
+ * HMAC512 verifier and re-checked the signature on every request, a reused verifier without the
+ * cache, and the current {@link JWTAuthenticationVerficationFilter}, which reuses one verifier and
+ * caches verified tokens. Also measures issuing a token the way {@code JWTAuthenticationFilter}
+ * does on login. Run {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private String token;
+    private String header;
+    private JWTVerifier verifier;
+    private JWTAuthenticationVerficationFilter filter;
+
+    @Setup
+    public void setUp() {
+        token = createToken();
+        header = SecurityConstants.TOKEN_PREFIX + token;
+        verifier = JWT.require(JWTTokenVerifier.ALGORITHM).build();
+        filter = new JWTAuthenticationVerficationFilter(authentication -> authentication, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public String createToken() {
+        return JWT.create()
+                .withSubject("benchmarkUser")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .withClaim(SecurityConstants.USER_ID_CLAIM, 1L)
+                .withClaim(SecurityConstants.CART_ID_CLAIM, 1L)
+                .sign(JWTTokenVerifier.ALGORITHM);
+    }
+
+    @Benchmark
+    public String verifyPerRequest() {
+        return JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
+                .verify(header.replace(SecurityConstants.TOKEN_PREFIX, ""))
+                .getSubject();
+    }
+
+    @Benchmark
+    public String verifyWithSharedVerifier() {
+        return verifier.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public Object filterWithCachedVerifier() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+        request.addHeader(SecurityConstants.HEADER_STRING, header);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.SareetaApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Latency of a logged request, {@code GET /api/user/{username}}, through the whole application
+ * with {@code com.example} logging at DEBUG against logging switched off. Log files go to
+ * {@code target/benchmark-logs} and the console is silenced, so only the file pipeline is measured.
+ * To compare against synchronous loggers, append
+ * {@code -jvmArgsAppend -DLog4jContextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dapp.log.dir=target/benchmark-logs", "-Dapp.log.console-level=OFF"})
+public class RequestLoggingBenchmark {
+
+    private static final String USERNAME = "loggingBenchmarkUser";
+    private static final String CREDENTIALS =
+            "{\"username\": \"" + USERNAME + "\", \"password\": \"password\", \"confirmPassword\": \"password\"}";
+
+    @Param({"OFF", "DEBUG"})
+    private LogLevel level;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+        mockMvc.perform(post("/api/user/create").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS));
+        token = mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(CREDENTIALS))
+                .andReturn().getResponse().getHeader("Authorization");
+        context.getBean(LoggingSystem.class).setLogLevel("com.example", level);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getUser() throws Exception {
+        return mockMvc.perform(get("/api/user/" + USERNAME).header("Authorization", token)).andReturn();
+    }
+}
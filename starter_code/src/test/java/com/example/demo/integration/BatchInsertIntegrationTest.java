@@ -0,0 +1,114 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that inserts are sent in JDBC batches: with sequence-generated ids a flush prepares one
+ * statement per batch of up to 50 rows, plus one sequence call per 50 ids, instead of one
+ * statement per row.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class BatchInsertIntegrationTest {
+
+    private static final int ROWS = 100;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void signup_insertsUsersAndCartsInBatches() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            users.add(user("batchSignup" + i));
+        }
+
+        statistics.clear();
+        userRepository.saveAll(users);
+        entityManager.flush();
+
+        assertEquals(2 * ROWS, statistics.getEntityInsertCount());
+        // Two batches per table and at most four sequence calls per sequence.
+        long prepared = statistics.getPrepareStatementCount();
+        assertTrue(prepared <= 12, "Expected at most 12 statements, got " + prepared);
+    }
+
+    @Test
+    public void orderSubmission_insertsLinesInBatches() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Item item = new Item();
+            item.setName("batchItem" + i);
+            item.setPrice(BigDecimal.ONE);
+            item.setDescription("An item for a large order");
+            items.add(item);
+        }
+        itemRepository.saveAll(items);
+        User user = user("batchOrderUser");
+        items.forEach(item -> user.getCart().addItem(item, 1));
+        userRepository.save(user);
+        entityManager.flush();
+
+        statistics.clear();
+        orderRepository.save(UserOrder.createFromCart(user.getCart()));
+        entityManager.flush();
+
+        assertEquals(1, statistics.getEntityInsertCount());
+        // The order, two batches of lines and at most two sequence calls.
+        long prepared = statistics.getPrepareStatementCount();
+        assertTrue(prepared <= 5, "Expected at most 5 statements, got " + prepared);
+    }
+
+    private static User user(String username) {
+        Cart cart = new Cart();
+        cart.setTotal(BigDecimal.ZERO);
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("not-a-real-hash");
+        user.setCart(cart);
+        cart.setUser(user);
+        return user;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: the batch endpoint has to commit or roll back its own transaction.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CartBatchIntegrationTest {
+
+    private static final String USERNAME = "batchCartUser";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Item first;
+    private Item second;
+    private Item full;
+    private String token;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        first = itemRepository.save(item("Batch Item 1"));
+        second = itemRepository.save(item("Batch Item 2"));
+        full = itemRepository.save(item("Batch Item 3"));
+
+        mockMvc.perform(post("/api/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + USERNAME + "\", \"password\": \"password\", "
+                                + "\"confirmPassword\": \"password\"}"))
+                .andExpect(status().isOk());
+        token = mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + USERNAME + "\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+
+        // A line that cannot take another unit without overflowing its quantity.
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = userRepository.findByUsername(USERNAME).getCart();
+            cart.addItem(full, Integer.MAX_VALUE);
+            return cartRepository.save(cart);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(userRepository.findByUsername(USERNAME));
+        itemRepository.delete(first);
+        itemRepository.delete(second);
+        itemRepository.delete(full);
+    }
+
+    @Test
+    public void failingOperation_rollsBackEarlierOperations() throws Exception {
+        mockMvc.perform(post("/api/cart/batch")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + USERNAME + "\", \"operations\": ["
+                                + "{\"itemId\": " + first.getId() + ", \"quantity\": 1}, "
+                                + "{\"itemId\": " + second.getId() + ", \"quantity\": 2}, "
+                                + "{\"itemId\": " + full.getId() + ", \"quantity\": 1}]}"))
+                .andExpect(status().isBadRequest());
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = userRepository.findByUsername(USERNAME).getCart();
+            assertEquals(0, cart.getQuantity(first.getId()));
+            assertEquals(0, cart.getQuantity(second.getId()));
+            assertEquals(Integer.MAX_VALUE, cart.getQuantity(full.getId()));
+            assertEquals(1, cart.getLines().size());
+            return null;
+        });
+    }
+
+    @Test
+    public void missingOperations_isBadRequest() throws Exception {
+        mockMvc.perform(post("/api/cart/batch")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + USERNAME + "\", \"operations\": null}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Item item(String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setPrice(BigDecimal.ONE);
+        item.setDescription("Changed in one batch");
+        return item;
+    }
+}
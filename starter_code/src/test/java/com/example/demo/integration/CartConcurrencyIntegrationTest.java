@@ -0,0 +1,129 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not @Transactional: every request has to commit for the requests to race each other.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CartConcurrencyIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Item item;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        item = new Item();
+        item.setName("Contended Item");
+        item.setPrice(BigDecimal.valueOf(3));
+        item.setDescription("Added by many threads at once");
+        item = itemRepository.save(item);
+
+        mockMvc.perform(post("/api/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"contendedUser\", \"password\": \"password\", \"confirmPassword\": \"password\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(userRepository.findByUsername("contendedUser"));
+        itemRepository.delete(item);
+    }
+
+    @Test
+    public void concurrentAddToCart_totalMatchesAppliedOperations() throws Exception {
+        String token = mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"contendedUser\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int quantity = t + 1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                    int statusCode = mockMvc.perform(post("/api/cart/addToCart")
+                                    .header("Authorization", token)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("{\"username\": \"contendedUser\", \"itemId\": " + item.getId()
+                                            + ", \"quantity\": " + quantity + "}"))
+                            .andReturn().getResponse().getStatus();
+                    if (statusCode == 200) {
+                        applied.addAndGet(quantity);
+                        succeeded.incrementAndGet();
+                    } else {
+                        assertEquals(409, statusCode);
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * REQUESTS_PER_THREAD, succeeded.get() + conflicts.get());
+        // Retrying from a fresh read resolves most races; only the unlucky few give up.
+        assertTrue(conflicts.get() < succeeded.get(),
+                succeeded.get() + " requests applied, " + conflicts.get() + " gave up after retries");
+        new TransactionTemplate(transactionManager).execute(status -> {
+            User user = userRepository.findByUsername("contendedUser");
+            Cart cart = user.getCart();
+            assertEquals(applied.get(), cart.getQuantity(item.getId()));
+            assertEquals(0, BigDecimal.valueOf(applied.get() * 3L).compareTo(cart.getTotal()));
+            return null;
+        });
+    }
+}
@@ -92,10 +92,11 @@ public class CartControllerIntegrationTest {
     @AfterEach
     @Rollback
     public void tearDown() {
-        // Cleanup in case the transaction is not rolled back properly
+        // Cleanup in case the transaction is not rolled back properly. Users go before carts:
+        // a user cascades to its cart, so a cart deleted first would be persisted again on flush.
         orderRepository.deleteAll();
-        cartRepository.deleteAll();
         userRepository.deleteAll();
+        cartRepository.deleteAll();
         itemRepository.deleteAll();
         TestTransaction.end();
     }
@@ -123,7 +124,8 @@ public class CartControllerIntegrationTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"username\": \"testUser\", \"itemId\": " + item.getId() + ", \"quantity\": 2}"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.lines.length()").value(1))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2))
                 .andExpect(jsonPath("$.total").value(20));
     }
 
@@ -131,18 +133,17 @@ public class CartControllerIntegrationTest {
     public void removeFromCart_success() throws Exception {
         String token = loginAndGetToken();
         Cart cart = user.getCart();
-        cart.addItem(item);
-        cart.addItem(item);
+        cart.addItem(item, 2);
         cart = cartRepository.saveAndFlush(cart);  // Save and flush to ensure it is in the persistence context
 
-        System.out.println("Cart items before removal: " + cart.getItems().size());
+        System.out.println("Cart lines before removal: " + cart.getLines().size());
 
         mockMvc.perform(post("/api/cart/removeFromCart")
                         .header("Authorization", token)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"username\": \"testUser\", \"itemId\": " + item.getId() + ", \"quantity\": 2}"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.lines.length()").value(0))
                 .andExpect(jsonPath("$.total").value(0));
     }
 
@@ -185,4 +186,19 @@ public class CartControllerIntegrationTest {
                         .content("{\"username\": \"testUser\", \"itemId\": 999, \"quantity\": 1}"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void modifyCart_success() throws Exception {
+        String token = loginAndGetToken();
+        mockMvc.perform(post("/api/cart/batch")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"testUser\", \"operations\": ["
+                                + "{\"itemId\": " + item.getId() + ", \"quantity\": 3}, "
+                                + "{\"itemId\": " + item.getId() + ", \"quantity\": -1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines.length()").value(1))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2))
+                .andExpect(jsonPath("$.total").value(20));
+    }
 }
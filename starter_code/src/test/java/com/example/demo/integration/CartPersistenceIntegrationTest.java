@@ -0,0 +1,95 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class CartPersistenceIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void cartMutations_costConstantStatements() {
+        long[] small = mutationStatementCounts(10);
+        long[] large = mutationStatementCounts(200);
+
+        assertArrayEquals(small, large);
+        for (long count : large) {
+            assertTrue(count <= 2, "expected at most 2 statements per mutation, got " + count);
+        }
+    }
+
+    // Statements issued to add a new line, change a line's quantity and remove a line.
+    private long[] mutationStatementCounts(int cartSize) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i <= cartSize; i++) {
+            Item item = new Item();
+            item.setName("Line Item " + i);
+            item.setPrice(BigDecimal.ONE);
+            item.setDescription("Cart line " + i);
+            items.add(item);
+        }
+        items = itemRepository.saveAll(items);
+
+        Cart cart = new Cart();
+        for (int i = 0; i < cartSize; i++) {
+            cart.addItem(items.get(i));
+        }
+        cart = cartRepository.saveAndFlush(cart);
+        assertEquals(cartSize, cart.getLines().size());
+
+        long[] counts = new long[3];
+
+        statistics.clear();
+        cart.addItem(items.get(cartSize), 3);
+        cart = cartRepository.saveAndFlush(cart);
+        counts[0] = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        cart.addItem(items.get(0), 2);
+        cart = cartRepository.saveAndFlush(cart);
+        counts[1] = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        cart.removeItem(items.get(cartSize), 3);
+        cart = cartRepository.saveAndFlush(cart);
+        counts[2] = statistics.getPrepareStatementCount();
+
+        assertEquals(0, statistics.getCollectionRecreateCount());
+        assertEquals(cartSize, cart.getLines().size());
+        return counts;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the statements each read endpoint prepares, including everything Jackson touches while
+ * rendering the response. Every endpoint is measured against a small and a large user; the count
+ * must not depend on how many lines or orders the user has, and must stay within its budget.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@Transactional
+public class EndpointQueryCountIntegrationTest {
+
+    private static final int SMALL = 1;
+    private static final int LARGE = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void getCart_constantStatements() throws Exception {
+        assertConstant(2, size -> get("/api/cart/" + username(size)), "$.lines.length()");
+    }
+
+    @Test
+    public void getOrderHistory_constantStatements() throws Exception {
+        assertConstant(4, size -> get("/api/order/history/" + username(size)).param("size", "100"), "$.length()");
+    }
+
+    @Test
+    public void getOrderSummaries_constantStatements() throws Exception {
+        assertConstant(1, size -> get("/api/order/history/" + username(size))
+                .param("view", "summary")
+                .param("size", "100"), "$.length()");
+    }
+
+    @Test
+    public void getOrder_constantStatements() throws Exception {
+        assertConstant(3, size -> get("/api/order/history/" + username(size) + "/" + latestOrderId(size)),
+                "$.lines.length()");
+    }
+
+    private void assertConstant(int budget, IntFunction<MockHttpServletRequestBuilder> request, String sizePath)
+            throws Exception {
+        long small = statements(SMALL, request, sizePath);
+        long large = statements(LARGE, request, sizePath);
+
+        assertEquals(small, large, "statement count grew with the data");
+        assertTrue(large <= budget, "expected at most " + budget + " statements, got " + large);
+    }
+
+    // A user with `size` cart lines and `size` orders of `size` lines each.
+    private long statements(int size, IntFunction<MockHttpServletRequestBuilder> request, String sizePath)
+            throws Exception {
+        String token = createUser(size);
+        MockHttpServletRequestBuilder builder = request.apply(size).header("Authorization", token);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(sizePath).value(size));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private String createUser(int size) throws Exception {
+        User user = new User();
+        user.setUsername(username(size));
+        user.setPassword(bCryptPasswordEncoder.encode("password"));
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setTotal(BigDecimal.ZERO);
+        user.setCart(cart);
+        for (int i = 0; i < size; i++) {
+            Item item = new Item();
+            item.setName("Query Count Item " + size + "-" + i);
+            item.setPrice(BigDecimal.ONE);
+            item.setDescription("Query count item");
+            cart.addItem(itemRepository.save(item), 2);
+        }
+        cartRepository.save(cart);
+        userRepository.saveAndFlush(user);
+        for (int i = 0; i < size; i++) {
+            orderRepository.save(UserOrder.createFromCart(cart));
+        }
+        entityManager.flush();
+
+        String login = String.format("{\"username\": \"%s\", \"password\": \"password\"}", username(size));
+        return mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(login))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+    }
+
+    private Long latestOrderId(int size) {
+        return orderRepository.findByUser(userRepository.findByUsername(username(size))).stream()
+                .mapToLong(UserOrder::getId)
+                .max()
+                .getAsLong();
+    }
+
+    private static String username(int size) {
+        return "queryCountUser" + size;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.integration;
+
+import com.example.demo.config.ItemCacheConfiguration;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: each repository call gets its own session, so repeats can only be
+// answered from the second-level cache, which is filled and invalidated on commit.
+@SpringBootTest
+public class ItemCacheIntegrationTest {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    private Item item;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        item = new Item();
+        item.setName("Cached Item");
+        item.setPrice(BigDecimal.TEN);
+        item.setDescription("An item to cache");
+        item = itemRepository.save(item);
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        itemRepository.deleteById(item.getId());
+    }
+
+    @Test
+    public void findById_isServedFromCache() {
+        itemRepository.findById(item.getId());
+        statistics.clear();
+        itemRepository.findById(item.getId());
+
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(ItemCacheConfiguration.ITEM_REGION);
+        assertEquals(1, region.getHitCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void findByName_isServedFromQueryCache() {
+        itemRepository.findByName("Cached Item");
+        itemRepository.findByName("Cached Item");
+
+        CacheRegionStatistics region =
+                statistics.getQueryRegionStatistics(ItemCacheConfiguration.ITEMS_BY_NAME_REGION);
+        assertEquals(1, region.getMissCount());
+        assertEquals(1, region.getHitCount());
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void save_invalidatesCachedEntries() {
+        itemRepository.findById(item.getId());
+        itemRepository.findByName("Cached Item");
+
+        item.setName("Renamed Item");
+        item.setPrice(BigDecimal.ONE);
+        itemRepository.save(item);
+
+        assertEquals(0, BigDecimal.ONE.compareTo(itemRepository.findById(item.getId()).get().getPrice()));
+        assertFalse(itemRepository.findByName("Renamed Item").isEmpty());
+        assertEquals(0, itemRepository.findByName("Cached Item").size());
+    }
+
+    @Test
+    public void cacheStatistics_arePublishedAsMeters() {
+        itemRepository.findById(item.getId());
+        itemRepository.findById(item.getId());
+
+        assertTrue(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("result", "hit")
+                .functionCounter()
+                .count() > 0);
+    }
+}
@@ -18,6 +18,7 @@ import java.math.BigDecimal;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -91,6 +92,29 @@ public class ItemControllerIntegrationTest {
                 .andExpect(jsonPath("$[1].name").value("Item 2"));
     }
 
+    @Test
+    public void getItems_paged() throws Exception {
+        String token = loginAndGetToken();
+        mockMvc.perform(get("/api/item")
+                        .param("size", "1")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Item 1"))
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(item1.getId())));
+
+        mockMvc.perform(get("/api/item")
+                        .param("after", String.valueOf(item1.getId()))
+                        .param("size", "1")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Item 2"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
     @Test
     public void getItemById_success() throws Exception {
         String token = loginAndGetToken();
@@ -0,0 +1,56 @@
+package com.example.demo.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.transaction.Transactional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void prometheusEndpoint_exposesRequestRepositoryAndSecurityMeters() throws Exception {
+        mockMvc.perform(post("/api/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"metricsUser\", \"password\": \"password\", \"confirmPassword\": \"password\"}"))
+                .andExpect(status().isOk());
+        String token = mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"metricsUser\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+        mockMvc.perform(get("/api/item").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/item/-1").header("Authorization", token))
+                .andExpect(status().isNotFound());
+
+        // No token: scrapers are not API users.
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "api_requests_seconds_count{method=\"GET\",outcome=\"SUCCESS\",uri=\"/api/item\",}")))
+                .andExpect(content().string(containsString(
+                        "api_requests_seconds_count{method=\"GET\",outcome=\"CLIENT_ERROR\",uri=\"/api/item/{id}\",}")))
+                .andExpect(content().string(containsString("api_requests_db_seconds_bucket{method=\"GET\",uri=\"/api/item\"")))
+                .andExpect(content().string(containsString(
+                        "api_repository_calls_seconds_count{method=\"findByIdGreaterThanOrderByIdAsc\",outcome=\"SUCCESS\",repository=\"ItemRepository\",}")))
+                .andExpect(content().string(containsString(
+                        "api_security_jwt_seconds_count{operation=\"verify\",outcome=\"SUCCESS\",}")))
+                .andExpect(content().string(containsString("api_security_login_seconds_count{outcome=\"SUCCESS\",}")));
+    }
+}
@@ -8,6 +8,7 @@ import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,7 @@ import java.util.Collections;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -54,17 +56,12 @@ public class OrderControllerIntegrationTest {
 
     @BeforeEach
     public void setUp() throws Exception {
-        // Clear all references to items in carts and orders before deleting items
+        // Clear all references to items in carts before deleting items
         cartRepository.findAll().forEach(cart -> {
             cart.setItems(new ArrayList<>());
             cartRepository.saveAndFlush(cart);
         });
 
-        orderRepository.findAll().forEach(order -> {
-            order.setItems(new ArrayList<>());
-            orderRepository.saveAndFlush(order);
-        });
-
         orderRepository.deleteAll();
         cartRepository.deleteAll();
         userRepository.deleteAll();
@@ -124,7 +121,10 @@ public class OrderControllerIntegrationTest {
                         .header("Authorization", token)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.lines.length()").value(1))
+                .andExpect(jsonPath("$.lines[0].quantity").value(1))
+                .andExpect(jsonPath("$.lines[0].itemId").value(item.getId()))
+                .andExpect(jsonPath("$.lines[0].itemName").value("testItem"))
                 .andExpect(jsonPath("$.total").value(10));
     }
 
@@ -166,6 +166,52 @@ public class OrderControllerIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(1));
     }
 
+    @Test
+    public void getOrderSummariesForUser_pagedNewestFirst() throws Exception {
+        String username = "testUser5";
+        createUserAndCart(username);
+        String token = loginAndGetToken(username, "password");
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"itemId\": " + item.getId() + ", \"quantity\": 2}"))
+                .andExpect(status().isOk());
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/order/submit/" + username)
+                            .header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        String cursor = mockMvc.perform(get("/api/order/history/" + username)
+                        .param("view", "summary")
+                        .param("size", "2")
+                        .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].lineCount").value(1))
+                .andExpect(jsonPath("$[0].total").value(20))
+                .andExpect(jsonPath("$[0].lines").doesNotExist())
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        String oldest = mockMvc.perform(get("/api/order/history/" + username)
+                        .param("view", "summary")
+                        .param("size", "2")
+                        .param("before", cursor)
+                        .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andReturn().getResponse().getContentAsString();
+
+        Number oldestId = JsonPath.read(oldest, "$[0].id");
+        mockMvc.perform(get("/api/order/history/" + username + "/" + oldestId)
+                        .header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    }
+
     @Test
     public void getOrdersForUser_userNotFound() throws Exception {
         String username = "testUser4";
@@ -0,0 +1,143 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.order.OrderIdempotencyRegistry;
+import com.example.demo.order.OrderSubmissionPipeline;
+import com.example.demo.order.OrderTicket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: the order writer commits in its own transactions.
+@SpringBootTest(properties = {"app.order.async.enabled=true", "app.order.async.max-batch-size=50"})
+public class OrderSubmissionPipelineIntegrationTest {
+
+    private static final int ORDERS = 120;
+
+    @Autowired
+    private OrderSubmissionPipeline pipeline;
+
+    @Autowired
+    private OrderIdempotencyRegistry idempotencyRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private Item item;
+    private Cart cart;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User();
+        user.setUsername("asyncOrderUser");
+        user.setPassword("password");
+        user.setCart(new Cart());
+        user = userRepository.save(user);
+        Cart saved = user.getCart();
+
+        item = new Item();
+        item.setName("Async Order Item");
+        item.setPrice(new BigDecimal("2.50"));
+        item.setDescription("Ordered in batches");
+        item = itemRepository.save(item);
+
+        cart = new Cart();
+        cart.setId(saved.getId());
+        cart.setUser(user);
+        cart.addItem(item, 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        orderRepository.deleteAll(orderRepository.findByUser(user));
+        userRepository.delete(user);
+        itemRepository.delete(item);
+    }
+
+    @Test
+    public void submittedOrders_areWrittenInBatches() throws Exception {
+        List<String> references = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            OrderTicket ticket = pipeline.submit(UserOrder.createFromCart(cart));
+            assertNotNull(ticket);
+            assertEquals(OrderTicket.Status.QUEUED, ticket.getStatus());
+            references.add(ticket.getReference());
+        }
+
+        for (String reference : references) {
+            OrderTicket ticket = awaitCompletion(reference);
+            assertEquals(OrderTicket.Status.COMPLETED, ticket.getStatus());
+            assertNotNull(ticket.getOrderId());
+        }
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (String reference : references) {
+                UserOrder order = orderRepository.findByReference(reference);
+                assertEquals(user.getId(), order.getUser().getId());
+                assertEquals(0, new BigDecimal("7.50").compareTo(order.getTotal()));
+                assertEquals(1, order.getLines().size());
+                assertEquals(3, order.getLines().get(0).getQuantity());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void failedWrite_releasesIdempotencyKeyForRetry() throws Exception {
+        String key = "retry-after-failed-write";
+        assertNull(idempotencyRegistry.reserve(user.getUsername(), key));
+        // An order without a user violates user_order.user_id not null, so its batch fails.
+        UserOrder broken = UserOrder.createFromCart(cart);
+        broken.setUser(new User());
+        OrderTicket first = pipeline.submit(broken, user.getUsername(), key);
+        assertTrue(idempotencyRegistry.reserve(user.getUsername(), key).isInProgress());
+        assertEquals(OrderTicket.Status.FAILED, awaitCompletion(first.getReference()).getStatus());
+
+        assertNull(idempotencyRegistry.reserve(user.getUsername(), key));
+        OrderTicket retry = pipeline.submit(UserOrder.createFromCart(cart), user.getUsername(), key);
+        assertEquals(OrderTicket.Status.COMPLETED, awaitCompletion(retry.getReference()).getStatus());
+
+        OrderIdempotencyRegistry.Outcome outcome = idempotencyRegistry.reserve(user.getUsername(), key);
+        assertNotNull(outcome);
+        assertEquals(retry.getReference(), outcome.getReference());
+    }
+
+    private OrderTicket awaitCompletion(String reference) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        OrderTicket ticket = pipeline.status(reference);
+        while (ticket.getStatus() == OrderTicket.Status.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            ticket = pipeline.status(reference);
+        }
+        return ticket;
+    }
+}
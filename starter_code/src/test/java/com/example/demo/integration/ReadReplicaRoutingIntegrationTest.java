@@ -0,0 +1,158 @@
+package com.example.demo.integration;
+
+import com.example.demo.datasource.ShardMap;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.user.UsernameBloomFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two separate in-memory H2 databases stand in for primary and replica. Nothing copies data
+// between them except replicate(), so everything written after it is "lagging" on the replica.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.read-your-writes.window=1m"
+})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingIntegrationTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UsernameBloomFilter usernameFilter;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    private String reader;
+    private String token;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        primary = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "arsenal"));
+        replica = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", ""));
+        reader = insertUserOnPrimary();
+        replicate();
+        token = login(reader);
+    }
+
+    @Test
+    public void replicaRead_seesOnlyReplicatedRows() throws Exception {
+        String late = insertUserOnPrimary();
+
+        mockMvc.perform(get("/api/user/" + late).header("Authorization", token))
+                .andExpect(status().isNotFound());
+
+        replicate();
+        mockMvc.perform(get("/api/user/" + late).header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void write_pinsWritersReadsToPrimary() throws Exception {
+        String late = createUser();
+        long itemId = itemRepository.findAll().get(0).getId();
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + reader + "\", \"itemId\": " + itemId + ", \"quantity\": 1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/user/" + late).header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void write_doesNotPinOtherUsers() throws Exception {
+        String writer = createUser();
+        replicate();
+        String writerToken = login(writer);
+        String late = insertUserOnPrimary();
+        long itemId = itemRepository.findAll().get(0).getId();
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .header("Authorization", writerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + writer + "\", \"itemId\": " + itemId + ", \"quantity\": 1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/user/" + late).header("Authorization", token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void signUp_pinsTheNewUsersReadsToPrimary() throws Exception {
+        String created = createUser();
+        String createdToken = login(created);
+
+        mockMvc.perform(get("/api/user/" + created).header("Authorization", createdToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/user/" + created).header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+
+    // A user written by someone else, e.g. another instance, so that nothing here has pinned it.
+    private String insertUserOnPrimary() {
+        String username = "replicaUser" + USERS.incrementAndGet();
+        long cartId = primary.queryForObject("select next value for cart_seq", Long.class);
+        primary.update("insert into cart (id, version, total) values (?, 0, 0)", cartId);
+        primary.update("insert into user (id, username, password, cart_id, shard_bucket) "
+                        + "values (next value for user_seq, ?, ?, ?, ?)",
+                username, passwordEncoder.encode("password"), cartId, ShardMap.bucketOf(username));
+        usernameFilter.rebuild();
+        return username;
+    }
+
+    private String createUser() throws Exception {
+        String username = "replicaUser" + USERS.incrementAndGet();
+        mockMvc.perform(post("/api/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"password\": \"password\", "
+                                + "\"confirmPassword\": \"password\"}"))
+                .andExpect(status().isOk());
+        return username;
+    }
+
+    private String login(String username) throws Exception {
+        return mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+    }
+
+    private void replicate() {
+        File snapshot = new File("target/routing-replica.sql");
+        primary.execute("SCRIPT TO '" + snapshot.getAbsolutePath() + "'");
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + snapshot.getAbsolutePath() + "'");
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.integration;
+
+import com.example.demo.datasource.ShardContext;
+import com.example.demo.datasource.ShardMap;
+import com.example.demo.datasource.ShardRebalancer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two in-memory H2 databases as shards 0 and 1. Not @Transactional: requests for different
+// users run against different databases.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "app.datasource.sharding.enabled=true",
+        "app.datasource.sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "app.datasource.sharding.shards[0].username=sa",
+        "app.datasource.sharding.shards[0].password="
+})
+@AutoConfigureMockMvc
+public class ShardingIntegrationTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void catalog_isCopiedToEveryShard() {
+        assertEquals(count(0, "select count(*) from item"), count(1, "select count(*) from item"));
+    }
+
+    @Test
+    public void users_areStoredOnlyOnTheirShard() throws Exception {
+        for (int shard = 0; shard < 2; shard++) {
+            String username = usernameOnShard(shard);
+            createUser(username);
+            String token = login(username);
+
+            assertEquals(1, count(shard, "select count(*) from user where username = ?", username));
+            assertEquals(0, count(1 - shard, "select count(*) from user where username = ?", username));
+            mockMvc.perform(get("/api/user/" + username).header("Authorization", token))
+                    .andExpect(status().isOk());
+            addToCart(username, token);
+        }
+    }
+
+    @Test
+    public void moveBucket_movesUserWithCartAndOrders() throws Exception {
+        String username = usernameOnShard(0);
+        createUser(username);
+        String token = login(username);
+        addToCart(username, token);
+        mockMvc.perform(post("/api/order/submit/" + username).header("Authorization", token))
+                .andExpect(status().isOk());
+        addToCart(username, token);
+
+        int bucket = ShardMap.bucketOf(username);
+        shardRebalancer.moveBucket(bucket, 1);
+
+        assertEquals(1, shardMap.shardOf(username));
+        assertEquals(0, count(0, "select count(*) from user where username = ?", username));
+        assertEquals(1, count(1, "select count(*) from user where username = ?", username));
+        assertEquals(bucket, count(1, "select shard_bucket from user where username = ?", username));
+        // Ids are unique across shards and kept by the move, so the old token still works.
+        mockMvc.perform(get("/api/order/history/" + username).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lines", hasSize(1)));
+        mockMvc.perform(get("/api/cart/" + username).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(5.98));
+
+        shardRebalancer.moveBucket(bucket, 0);
+        mockMvc.perform(get("/api/cart/" + username).header("Authorization", login(username)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void moveBucket_waitsForCartUpdateInFlight() throws Exception {
+        String username = usernameOnShard(0);
+        createUser(username);
+        String token = login(username);
+        int bucket = ShardMap.bucketOf(username);
+        long cartId = count(0, "select cart_id from user where username = ?", username);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Holds the cart row so that the cart update below stalls after it has been routed.
+            Future<?> lock = executor.submit(() -> ShardContext.run(0, () ->
+                    new TransactionTemplate(transactionManager).execute(status -> {
+                        jdbcTemplate.queryForList("select id from cart where id = ? for update", cartId);
+                        locked.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return null;
+                    })));
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            Future<?> update = executor.submit(() -> {
+                addToCart(username, token);
+                return null;
+            });
+            waitUntil(() -> shardMap.inFlight(bucket) == 1);
+
+            Future<Integer> move = executor.submit(() -> shardRebalancer.moveBucket(bucket, 1));
+            Thread.sleep(300);
+            assertFalse(move.isDone(), "the move must wait for the cart update");
+
+            release.countDown();
+            lock.get(10, TimeUnit.SECONDS);
+            update.get(10, TimeUnit.SECONDS);
+            assertEquals(1, move.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, shardMap.inFlight(bucket));
+        assertEquals(0, count(0, "select count(*) from user where username = ?", username));
+        assertEquals(1, count(1, "select count(*) from cart_line where cart_id = ?", cartId));
+        mockMvc.perform(get("/api/cart/" + username).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2.99));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private String usernameOnShard(int shard) {
+        String username;
+        do {
+            username = "shardUser" + USERS.incrementAndGet();
+        } while (shardMap.shardOf(username) != shard);
+        return username;
+    }
+
+    private long count(int shard, String sql, Object... args) {
+        return ShardContext.call(shard, () -> jdbcTemplate.queryForObject(sql, Long.class, args));
+    }
+
+    private void createUser(String username) throws Exception {
+        mockMvc.perform(post("/api/user/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"password\": \"password\", "
+                                + "\"confirmPassword\": \"password\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private String login(String username) throws Exception {
+        return mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"password\": \"password\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Authorization");
+    }
+
+    private void addToCart(String username, String token) throws Exception {
+        long itemId = ShardContext.call(0, () -> jdbcTemplate.queryForObject(
+                "select id from item where name = 'Round Widget'", Long.class));
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"itemId\": " + itemId + ", \"quantity\": 1}"))
+                .andExpect(status().isOk());
+    }
+}
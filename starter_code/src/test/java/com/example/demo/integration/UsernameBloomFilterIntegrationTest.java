@@ -0,0 +1,125 @@
+package com.example.demo.integration;
+
+import com.example.demo.datasource.ShardMap;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.user.UsernameBloomFilter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.user.bloom.expected-users=1000"})
+@Transactional
+public class UsernameBloomFilterIntegrationTest {
+
+    private static final int USERS = 500;
+    private static final int PROBES = 10_000;
+
+    @Autowired
+    private UsernameBloomFilter usernameFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void unknownUsernames_skipTheDatabase() {
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("bloomUser" + i);
+            user.setPassword("password");
+            userRepository.save(user);
+        }
+        userRepository.flush();
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(usernameFilter.mightContain("bloomUser" + i));
+        }
+        assertNotNull(userRepository.findByUsername("bloomUser7"));
+
+        int falsePositives = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (usernameFilter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < PROBES * 0.03, falsePositives + " false positives in " + PROBES);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String missing;
+        do {
+            missing = UUID.randomUUID().toString();
+        } while (usernameFilter.mightContain(missing));
+        statistics.clear();
+        assertNull(userRepository.findByUsername(missing));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void rebuild_keepsExistingUsers() {
+        User user = new User();
+        user.setUsername("rebuiltUser");
+        user.setPassword("password");
+        userRepository.saveAndFlush(user);
+
+        usernameFilter.rebuild();
+
+        assertTrue(usernameFilter.mightContain("rebuiltUser"));
+        assertTrue(usernameFilter.memoryBytes() > 0);
+        assertTrue(usernameFilter.estimatedFalsePositiveRate() < 0.01);
+    }
+
+    @Test
+    public void login_findsUserTheFilterHasNotSeen() {
+        // As if created by another instance: inserted without going through this one's entities.
+        String username;
+        do {
+            username = "elsewhere" + UUID.randomUUID();
+        } while (usernameFilter.mightContain(username));
+        jdbcTemplate.update("insert into user (id, username, password, shard_bucket) "
+                + "values (next value for user_seq, ?, 'password', ?)", username, ShardMap.bucketOf(username));
+        assertNull(userRepository.findByUsername(username));
+
+        assertEquals(username, userDetailsService.loadUserByUsername(username).getUsername());
+
+        assertTrue(usernameFilter.mightContain(username));
+        assertNotNull(userRepository.findByUsername(username));
+    }
+
+    @Test
+    public void updates_doNotAddTheNameAgain() {
+        User user = new User();
+        user.setUsername("updatedUser");
+        user.setPassword("password");
+        userRepository.saveAndFlush(user);
+        double rate = usernameFilter.estimatedFalsePositiveRate();
+
+        for (int i = 0; i < 10; i++) {
+            user.setPassword("password" + i);
+            userRepository.saveAndFlush(user);
+        }
+
+        assertEquals(rate, usernameFilter.estimatedFalsePositiveRate());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.integration;
+
+import com.example.demo.cart.WriteBehindCartStore;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Not @Transactional: the flusher writes in its own transactions.
+@SpringBootTest(properties = {"app.cart.write-behind.enabled=true", "app.cart.write-behind.flush-interval=1h"})
+public class WriteBehindCartStoreIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 250;
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private Item item;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User();
+        user.setUsername("writeBehindUser");
+        user.setPassword("password");
+        user.setCart(new Cart());
+        user = userRepository.save(user);
+
+        item = new Item();
+        item.setName("Write Behind Item");
+        item.setPrice(BigDecimal.ONE);
+        item.setDescription("Added concurrently");
+        item = itemRepository.save(item);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // By id, so the cart is re-read at the version the flushes left it at.
+        userRepository.deleteById(user.getId());
+        itemRepository.delete(item);
+    }
+
+    @Test
+    public void concurrentUpdates_areNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    cartStore.update(user.getCart(), cart -> cart.addItem(item));
+                    if (i % 50 == 0) {
+                        cartStore.flush();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int expected = THREADS * UPDATES_PER_THREAD;
+        assertEquals(expected, (int) cartStore.read(user.getCart(), cart -> cart.getQuantity(item.getId())));
+
+        cartStore.flush();
+        assertEquals(0, cartStore.dirtyCount());
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Cart persisted = cartRepository.findById(user.getCart().getId()).get();
+            assertEquals(expected, persisted.getQuantity(item.getId()));
+            assertEquals(0, BigDecimal.valueOf(expected).compareTo(persisted.getTotal()));
+            return null;
+        });
+    }
+
+    @Test
+    public void failingUpdate_leavesCartUnchanged() {
+        cartStore.update(user.getCart(), cart -> cart.addItem(item, 2));
+
+        assertThrows(IllegalStateException.class, () -> cartStore.update(user.getCart(), cart -> {
+            cart.addItem(item, 3);
+            throw new IllegalStateException("change failed part way");
+        }));
+
+        assertEquals(2, (int) cartStore.read(user.getCart(), cart -> cart.getQuantity(item.getId())));
+        assertEquals(0, BigDecimal.valueOf(2).compareTo(cartStore.read(user.getCart(), Cart::getTotal)));
+        cartStore.flush();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures of one endpoint during a load run. Latencies are recorded in
+ * microseconds; anything slower than a minute is clamped to a minute.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE, 3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long startNanos, boolean success) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        latencies.recordValue(Math.min(Math.max(micros, 1), HIGHEST_TRACKABLE));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getCount() {
+        return latencies.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    double getErrorRate() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getErrors() / count;
+    }
+
+    long percentileMicros(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    long maxMicros() {
+        return latencies.getMaxValue();
+    }
+
+    // Full percentile distribution in HdrHistogram's .hgrm format, values in milliseconds.
+    void writeDistribution(Path dir) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(name + ".hgrm")), false, "UTF-8")) {
+            latencies.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shape of a load run, read from {@code load.*} system properties so a run can be resized from the
+ * command line, e.g. {@code mvn -Pload test -Dload.clients=64 -Dload.duration=2m}.
+ */
+final class LoadSettings {
+
+    static final String DEFAULT_MIX = "items=25,item=20,cart=5,addToCart=20,removeFromCart=10,submit=5,history=15";
+
+    private final int users;
+    private final int clients;
+    private final int items;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<String, Integer> mix;
+    private final Duration p99Budget;
+    private final Duration p999Budget;
+    private final double maxErrorRate;
+    private final Path reportDir;
+
+    private LoadSettings(int users, int clients, int items, Duration warmup, Duration duration,
+                         Map<String, Integer> mix, Duration p99Budget, Duration p999Budget, double maxErrorRate,
+                         Path reportDir) {
+        this.users = users;
+        this.clients = clients;
+        this.items = items;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = Collections.unmodifiableMap(mix);
+        this.p99Budget = p99Budget;
+        this.p999Budget = p999Budget;
+        this.maxErrorRate = maxErrorRate;
+        this.reportDir = reportDir;
+    }
+
+    static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+                Integer.getInteger("load.users", 50),
+                Integer.getInteger("load.clients", 32),
+                Integer.getInteger("load.items", 200),
+                duration("load.warmup", "10s"),
+                duration("load.duration", "30s"),
+                mix(System.getProperty("load.mix", DEFAULT_MIX)),
+                duration("load.budget.p99", "250ms"),
+                duration("load.budget.p999", "1s"),
+                Double.parseDouble(System.getProperty("load.max-error-rate", "0.001")),
+                Paths.get(System.getProperty("load.report-dir", "target/load")));
+    }
+
+    // "name=weight,name=weight"; weights are relative, not percentages.
+    static Map<String, Integer> mix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Bad load.mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(parts[0].trim(), weight);
+            }
+        }
+        return mix;
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    int getClients() {
+        return clients;
+    }
+
+    int getItems() {
+        return items;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    Duration getP99Budget() {
+        return p99Budget;
+    }
+
+    Duration getP999Budget() {
+        return p999Budget;
+    }
+
+    double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    Path getReportDir() {
+        return reportDir;
+    }
+}
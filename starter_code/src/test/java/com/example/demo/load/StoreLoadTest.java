@@ -0,0 +1,242 @@
+package com.example.demo.load;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mix of catalog, cart and order traffic at the application over real HTTP and reports
+ * throughput and latency percentiles per endpoint. Not part of the normal build; run it with
+ * {@code mvn -Pload test}, sized through the {@code load.*} properties read by {@link LoadSettings}.
+ *
+ * <p>Each client thread is bound to one user and sends its next request as soon as the previous
+ * one is answered, so the latencies are those of a closed system: a stall also lowers the offered
+ * load, and the percentiles understate what an open stream of users would see during it.
+ *
+ * <p>Reports are written to {@code load.report-dir}: one {@code .hgrm} percentile distribution per
+ * endpoint and a {@code summary.txt}. The run fails if any endpoint's p99 or p99.9 exceeds its
+ * budget or its error rate exceeds {@code load.max-error-rate}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class StoreLoadTest {
+
+    private static final Logger log = LogManager.getLogger(StoreLoadTest.class);
+
+    private static final String PASSWORD = "loadTestPassword";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Test
+    public void mixedTraffic_staysWithinLatencyBudget() throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        List<Long> itemIds = seedItems(settings.getItems());
+        List<Session> sessions = createSessions(settings.getUsers());
+        Map<String, Function<Session, Boolean>> operations = operations(itemIds);
+
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : settings.getMix().entrySet()) {
+            if (!operations.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown operation in load.mix: " + entry.getKey()
+                        + ", expected one of " + operations.keySet());
+            }
+            stats.put(entry.getKey(), new EndpointStats(entry.getKey()));
+            for (int i = 0; i < entry.getValue(); i++) {
+                names.add(entry.getKey());
+            }
+        }
+
+        log.info("Load run: {} users, {} clients, warmup {}, duration {}, mix {}", settings.getUsers(),
+                settings.getClients(), settings.getWarmup(), settings.getDuration(), settings.getMix());
+        long start = System.nanoTime();
+        long measureFrom = start + settings.getWarmup().toNanos();
+        long end = measureFrom + settings.getDuration().toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(settings.getClients());
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int c = 0; c < settings.getClients(); c++) {
+                Session session = sessions.get(c % sessions.size());
+                running.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        String name = names.get(random.nextInt(names.size()));
+                        boolean success;
+                        try {
+                            success = operations.get(name).apply(session);
+                        } catch (RuntimeException e) {
+                            success = false;
+                        }
+                        if (now >= measureFrom) {
+                            stats.get(name).record(now, success);
+                        }
+                    }
+                }));
+            }
+            TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+            // Requests that straddle the end of the warmup would otherwise be half counted.
+            stats.values().forEach(EndpointStats::reset);
+            for (Future<?> client : running) {
+                client.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        List<String> violations = report(settings, stats.values());
+        assertTrue(violations.isEmpty(), String.join("\n", violations));
+    }
+
+    private Map<String, Function<Session, Boolean>> operations(List<Long> itemIds) {
+        Map<String, Function<Session, Boolean>> operations = new LinkedHashMap<>();
+        operations.put("items", s -> get(s, "/api/item?size=20"));
+        operations.put("item", s -> get(s, "/api/item/" + randomItem(itemIds)));
+        operations.put("cart", s -> get(s, "/api/cart/" + s.username));
+        operations.put("addToCart", s -> post(s, "/api/cart/addToCart", modifyCart(s, randomItem(itemIds))));
+        operations.put("removeFromCart", s -> post(s, "/api/cart/removeFromCart", modifyCart(s, randomItem(itemIds))));
+        operations.put("submit", s -> post(s, "/api/order/submit/" + s.username, null));
+        operations.put("history", s -> get(s, "/api/order/history/" + s.username + "?view=summary&size=20"));
+        return operations;
+    }
+
+    private boolean get(Session session, String path) {
+        return exchange(session, HttpMethod.GET, path, null);
+    }
+
+    private boolean post(Session session, String path, String body) {
+        return exchange(session, HttpMethod.POST, path, body);
+    }
+
+    private boolean exchange(Session session, HttpMethod method, String path, String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, session.token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<byte[]> response = restTemplate.exchange(path, method, new HttpEntity<>(body, headers),
+                byte[].class);
+        return response.getStatusCode().is2xxSuccessful();
+    }
+
+    private static String modifyCart(Session session, long itemId) {
+        return "{\"username\": \"" + session.username + "\", \"itemId\": " + itemId + ", \"quantity\": 1}";
+    }
+
+    private static long randomItem(List<Long> itemIds) {
+        return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    }
+
+    private List<Long> seedItems(int count) {
+        List<Item> items = new ArrayList<>();
+        for (long i = itemRepository.count(); i < count; i++) {
+            Item item = new Item();
+            item.setName("Load Item " + i);
+            item.setPrice(BigDecimal.valueOf(i % 1000 + 1, 2));
+            item.setDescription("Seeded for load testing");
+            items.add(item);
+        }
+        itemRepository.saveAll(items);
+        List<Long> ids = new ArrayList<>();
+        itemRepository.findAll().forEach(item -> ids.add(item.getId()));
+        return ids;
+    }
+
+    // Users are created one at a time; BCrypt is the bottleneck here and would shed a burst with 503.
+    private List<Session> createSessions(int users) {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<Session> sessions = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            String username = "load-" + run + "-" + u;
+            String credentials = "{\"username\": \"" + username + "\", \"password\": \"" + PASSWORD
+                    + "\", \"confirmPassword\": \"" + PASSWORD + "\"}";
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            ResponseEntity<String> created = restTemplate.postForEntity("/api/user/create",
+                    new HttpEntity<>(credentials, headers), String.class);
+            if (!created.getStatusCode().is2xxSuccessful()) {
+                throw new IllegalStateException("Could not create " + username + ": " + created.getStatusCode());
+            }
+            ResponseEntity<String> login = restTemplate.postForEntity("/login",
+                    new HttpEntity<>(credentials, headers), String.class);
+            String token = login.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (token == null) {
+                throw new IllegalStateException("Could not log in " + username + ": " + login.getStatusCode());
+            }
+            sessions.add(new Session(username, token));
+        }
+        return sessions;
+    }
+
+    private static List<String> report(LoadSettings settings, Iterable<EndpointStats> stats) throws IOException {
+        Files.createDirectories(settings.getReportDir());
+        double seconds = settings.getDuration().toMillis() / 1000.0;
+        long p99Budget = settings.getP99Budget().toMillis() * 1000;
+        long p999Budget = settings.getP999Budget().toMillis() * 1000;
+
+        StringBuilder summary = new StringBuilder(String.format("%-16s %10s %10s %10s %10s %10s %10s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        List<String> violations = new ArrayList<>();
+        for (EndpointStats endpoint : stats) {
+            endpoint.writeDistribution(settings.getReportDir());
+            summary.append(String.format("%-16s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                    endpoint.getName(), endpoint.getCount(), endpoint.getCount() / seconds,
+                    endpoint.percentileMicros(50) / 1000.0, endpoint.percentileMicros(99) / 1000.0,
+                    endpoint.percentileMicros(99.9) / 1000.0, endpoint.maxMicros() / 1000.0,
+                    endpoint.getErrors()));
+            if (endpoint.percentileMicros(99) > p99Budget) {
+                violations.add(endpoint.getName() + " p99 " + endpoint.percentileMicros(99) / 1000.0
+                        + " ms over budget " + settings.getP99Budget().toMillis() + " ms");
+            }
+            if (endpoint.percentileMicros(99.9) > p999Budget) {
+                violations.add(endpoint.getName() + " p99.9 " + endpoint.percentileMicros(99.9) / 1000.0
+                        + " ms over budget " + settings.getP999Budget().toMillis() + " ms");
+            }
+            if (endpoint.getErrorRate() > settings.getMaxErrorRate()) {
+                violations.add(endpoint.getName() + " error rate " + endpoint.getErrorRate()
+                        + " over " + settings.getMaxErrorRate());
+            }
+        }
+        Files.write(settings.getReportDir().resolve("summary.txt"), summary.toString().getBytes("UTF-8"));
+        log.info("Load run finished, reports in {}\n{}", settings.getReportDir().toAbsolutePath(), summary);
+        return violations;
+    }
+
+    private static final class Session {
+        private final String username;
+        private final String token;
+
+        Session(String username, String token) {
+            this.username = username;
+            this.token = token;
+        }
+    }
+}
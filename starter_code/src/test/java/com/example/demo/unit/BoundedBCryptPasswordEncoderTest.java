@@ -0,0 +1,73 @@
+package com.example.demo.unit;
+
+import com.example.demo.security.BoundedBCryptPasswordEncoder;
+import com.example.demo.security.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedBCryptPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedBCryptPasswordEncoder encoder;
+
+    @AfterEach
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void encodeAndMatch() {
+        encoder = new BoundedBCryptPasswordEncoder(4, 2, 4, meterRegistry);
+
+        String hash = encoder.encode("password123");
+
+        assertTrue(encoder.matches("password123", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, meterRegistry.get("password.hash.duration").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hash.queue").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    public void rejectsWhenPoolAndQueueAreFull() throws Exception {
+        // Cost 12 takes long enough that no hash finishes before every caller has arrived.
+        encoder = new BoundedBCryptPasswordEncoder(12, 1, 1, meterRegistry);
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return encoder.encode("password123");
+            }));
+        }
+        start.countDown();
+
+        int rejected = 0;
+        for (Future<String> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof PasswordHashingRejectedException);
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertTrue(rejected >= callers - 2, "only " + rejected + " callers were rejected");
+        assertEquals(rejected, (int) meterRegistry.get("password.hash.rejected").counter().count());
+    }
+}
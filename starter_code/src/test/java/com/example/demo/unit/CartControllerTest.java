@@ -7,20 +7,32 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.CurrentUserLookup;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -41,6 +53,8 @@ public class CartControllerTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(cartController, "currentUserLookup",
+                new CurrentUserLookup(userRepository, cartRepository));
     }
 
     @Test
@@ -54,7 +68,7 @@ public class CartControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(0)).findById(anyLong());
-        verify(cartRepository, times(0)).save(any(Cart.class));
+        verify(cartRepository, times(0)).saveAndFlush(any(Cart.class));
     }
 
     @Test
@@ -62,7 +76,7 @@ public class CartControllerTest {
         ModifyCartRequest request = new ModifyCartRequest();
         request.setUsername("testUser");
         request.setItemId(1L);
-        when(userRepository.findByUsername("testUser")).thenReturn(new User());
+        when(userRepository.findByUsername("testUser")).thenReturn(userWithCart());
         when(itemRepository.findById(1L)).thenReturn(Optional.empty());
 
         ResponseEntity<Cart> response = cartController.addTocart(request);
@@ -70,7 +84,7 @@ public class CartControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(1)).findById(1L);
-        verify(cartRepository, times(0)).save(any(Cart.class));
+        verify(cartRepository, times(0)).saveAndFlush(any(Cart.class));
     }
 
     @Test
@@ -93,12 +107,13 @@ public class CartControllerTest {
         ResponseEntity<Cart> response = cartController.addTocart(request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, cart.getItems().size());
+        assertEquals(1, cart.getLines().size());
+        assertEquals(2, cart.getQuantity(1L));
         assertEquals(BigDecimal.valueOf(20), cart.getTotal());
 
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(1)).findById(1L);
-        verify(cartRepository, times(1)).save(cart);
+        verify(cartRepository, times(1)).saveAndFlush(cart);
     }
 
     @Test
@@ -112,7 +127,7 @@ public class CartControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(0)).findById(anyLong());
-        verify(cartRepository, times(0)).save(any(Cart.class));
+        verify(cartRepository, times(0)).saveAndFlush(any(Cart.class));
     }
 
     @Test
@@ -120,7 +135,7 @@ public class CartControllerTest {
         ModifyCartRequest request = new ModifyCartRequest();
         request.setUsername("testUser");
         request.setItemId(1L);
-        when(userRepository.findByUsername("testUser")).thenReturn(new User());
+        when(userRepository.findByUsername("testUser")).thenReturn(userWithCart());
         when(itemRepository.findById(1L)).thenReturn(Optional.empty());
 
         ResponseEntity<Cart> response = cartController.removeFromcart(request);
@@ -128,7 +143,7 @@ public class CartControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(1)).findById(1L);
-        verify(cartRepository, times(0)).save(any(Cart.class));
+        verify(cartRepository, times(0)).saveAndFlush(any(Cart.class));
     }
 
     @Test
@@ -144,8 +159,7 @@ public class CartControllerTest {
         Item item = new Item();
         item.setId(1L);
         item.setPrice(BigDecimal.TEN);
-        cart.addItem(item);
-        cart.addItem(item);
+        cart.addItem(item, 2);
 
         when(userRepository.findByUsername("testUser")).thenReturn(user);
         when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
@@ -153,11 +167,180 @@ public class CartControllerTest {
         ResponseEntity<Cart> response = cartController.removeFromcart(request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(0, cart.getItems().size());
+        assertEquals(0, cart.getLines().size());
         assertEquals(BigDecimal.ZERO, cart.getTotal());
 
         verify(userRepository, times(1)).findByUsername("testUser");
         verify(itemRepository, times(1)).findById(1L);
-        verify(cartRepository, times(1)).save(cart);
+        verify(cartRepository, times(1)).saveAndFlush(cart);
+    }
+
+    @Test
+    public void removeFromCart_moreThanInCart() {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername("testUser");
+        request.setItemId(1L);
+        request.setQuantity(5);
+
+        User user = new User();
+        Cart cart = new Cart();
+        user.setCart(cart);
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(BigDecimal.TEN);
+        cart.addItem(item, 3);
+
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+
+        ResponseEntity<Cart> response = cartController.removeFromcart(request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0, cart.getLines().size());
+        assertEquals(BigDecimal.ZERO, cart.getTotal());
+    }
+
+    @Test
+    public void modifyCart_success() {
+        BatchModifyCartRequest request = new BatchModifyCartRequest();
+        request.setUsername("testUser");
+        request.setOperations(Arrays.asList(
+                new BatchModifyCartRequest.CartOperation(1L, 3),
+                new BatchModifyCartRequest.CartOperation(2L, -1),
+                new BatchModifyCartRequest.CartOperation(1L, -1)));
+
+        User user = new User();
+        Cart cart = new Cart();
+        user.setCart(cart);
+        Item item1 = new Item(1L, "Item 1", BigDecimal.TEN, "Description 1");
+        Item item2 = new Item(2L, "Item 2", BigDecimal.ONE, "Description 2");
+        cart.addItem(item2, 2);
+
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(item1, item2));
+
+        ResponseEntity<Cart> response = cartController.modifyCart(request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, cart.getQuantity(1L));
+        assertEquals(1, cart.getQuantity(2L));
+        assertEquals(BigDecimal.valueOf(21), cart.getTotal());
+        verify(itemRepository, times(1)).findAllById(anyIterable());
+        verify(itemRepository, never()).findById(anyLong());
+        verify(cartRepository, times(1)).saveAndFlush(cart);
+    }
+
+    @Test
+    public void modifyCart_nullOperations() {
+        BatchModifyCartRequest request = new BatchModifyCartRequest();
+        request.setUsername("testUser");
+        request.setOperations(null);
+
+        ResponseEntity<Cart> response = cartController.modifyCart(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(cartRepository, never()).saveAndFlush(any(Cart.class));
+    }
+
+    @Test
+    public void modifyCart_itemNotFound() {
+        BatchModifyCartRequest request = new BatchModifyCartRequest();
+        request.setUsername("testUser");
+        request.setOperations(Arrays.asList(
+                new BatchModifyCartRequest.CartOperation(1L, 1),
+                new BatchModifyCartRequest.CartOperation(999L, 1)));
+
+        User user = new User();
+        user.setCart(new Cart());
+
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findAllById(anyIterable()))
+                .thenReturn(Collections.singletonList(new Item(1L, "Item 1", BigDecimal.TEN, "Description 1")));
+
+        ResponseEntity<Cart> response = cartController.modifyCart(request);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(cartRepository, times(0)).saveAndFlush(any(Cart.class));
+    }
+
+    @Test
+    public void addToCart_ownCartByIdFromToken() {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername("testUser");
+        request.setItemId(1L);
+        request.setQuantity(1);
+        Cart cart = new Cart();
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(BigDecimal.TEN);
+        when(cartRepository.findWithLinesById(5L)).thenReturn(Optional.of(cart));
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser("testUser", 3L, 5L), null, Collections.emptyList()));
+        try {
+            ResponseEntity<Cart> response = cartController.addTocart(request);
+
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(1, cart.getQuantity(1L));
+            verify(userRepository, never()).findByUsername(any());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void getCart_success() {
+        User user = userWithCart();
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+
+        ResponseEntity<Cart> response = cartController.getCart("testUser");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(user.getCart(), response.getBody());
+    }
+
+    @Test
+    public void getCart_userNotFound() {
+        when(userRepository.findByUsername("testUser")).thenReturn(null);
+
+        ResponseEntity<Cart> response = cartController.getCart("testUser");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void addToCart_duplicateLineIsAConflict() {
+        addToCartFailingWith("PUBLIC.UK_CART_LINE_CART_ITEM_INDEX_B");
+
+        assertThrows(ConcurrencyFailureException.class, () -> cartController.addTocart(addOneRequest()));
+    }
+
+    @Test
+    public void addToCart_otherIntegrityViolationIsNotAConflict() {
+        addToCartFailingWith("FK_CART_LINE_ITEM");
+
+        assertThrows(DataIntegrityViolationException.class, () -> cartController.addTocart(addOneRequest()));
+    }
+
+    private void addToCartFailingWith(String constraint) {
+        Item item = new Item(1L, "Item 1", BigDecimal.TEN, "Description 1");
+        when(userRepository.findByUsername("testUser")).thenReturn(userWithCart());
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(cartRepository.saveAndFlush(any(Cart.class))).thenThrow(new DataIntegrityViolationException("could not execute batch",
+                new ConstraintViolationException("could not execute batch", new SQLException(), constraint)));
+    }
+
+    private static ModifyCartRequest addOneRequest() {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername("testUser");
+        request.setItemId(1L);
+        request.setQuantity(1);
+        return request;
+    }
+
+    private static User userWithCart() {
+        User user = new User();
+        user.setCart(new Cart());
+        return user;
     }
 }
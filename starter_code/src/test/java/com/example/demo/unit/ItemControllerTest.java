@@ -3,19 +3,28 @@ package com.example.demo.unit;
 import com.example.demo.controllers.ItemController;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ItemControllerTest {
@@ -26,6 +35,12 @@ public class ItemControllerTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private ItemSearchIndex itemSearchIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -48,13 +63,48 @@ public class ItemControllerTest {
         item2.setDescription("Description 2");
         items.add(item2);
 
-        when(itemRepository.findAll()).thenReturn(items);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(items);
 
-        ResponseEntity<List<Item>> response = itemController.getItems();
+        ResponseEntity<List<Item>> response = itemController.getItems(0L, ItemController.DEFAULT_PAGE_SIZE);
 
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(2, response.getBody().size());
-        verify(itemRepository, times(1)).findAll();
+        assertNull(response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+        verify(itemRepository, never()).findAll();
+    }
+
+    @Test
+    public void getItems_nextCursor() {
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Item item = new Item(id, "Item " + id, BigDecimal.TEN, "Description " + id);
+            items.add(item);
+        }
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(items);
+
+        ResponseEntity<List<Item>> response = itemController.getItems(0L, 2);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, response.getBody().size());
+        assertEquals("2", response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void streamItems_success() throws Exception {
+        List<Item> items = new ArrayList<>();
+        items.add(new Item(1L, "Item 1", BigDecimal.TEN, "Description 1"));
+        items.add(new Item(2L, "Item 2", BigDecimal.TEN, "Description 2"));
+
+        when(itemRepository.findDetachedByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(items);
+
+        ResponseEntity<StreamingResponseBody> response = itemController.streamItems();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, objectMapper.readTree(out.toByteArray()).size());
+        verify(itemRepository, times(1)).findDetachedByIdGreaterThan(eq(0L), any(Pageable.class));
     }
 
     @Test
@@ -112,4 +162,28 @@ public class ItemControllerTest {
         assertEquals(404, response.getStatusCodeValue());
         verify(itemRepository, times(1)).findByName("Item 1");
     }
+
+    @Test
+    public void searchItems_success() {
+        List<Item> items = new ArrayList<>();
+        items.add(new Item(1L, "Round Widget", BigDecimal.TEN, "A widget that is round"));
+
+        when(itemSearchIndex.search("wid", 0, ItemController.DEFAULT_PAGE_SIZE))
+                .thenReturn(new ItemSearchIndex.SearchResult(items, 1));
+
+        ResponseEntity<List<Item>> response = itemController.searchItems("wid", 0, ItemController.DEFAULT_PAGE_SIZE);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().size());
+        assertEquals("1", response.getHeaders().getFirst(ItemController.TOTAL_COUNT_HEADER));
+        verify(itemRepository, never()).findByName(anyString());
+    }
+
+    @Test
+    public void searchItems_rejectsTokensShorterThanAPrefix() {
+        ResponseEntity<List<Item>> response = itemController.searchItems("w", 0, ItemController.DEFAULT_PAGE_SIZE);
+
+        assertEquals(400, response.getStatusCodeValue());
+        verify(itemSearchIndex, never()).search(anyString(), anyInt(), anyInt());
+    }
 }
@@ -0,0 +1,138 @@
+package com.example.demo.unit;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ItemSearchIndexTest {
+
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        // Compactions run on the writing thread, so their effect is visible right after the write.
+        index = new ItemSearchIndex(mock(ItemRepository.class), Runnable::run);
+        index.put(new Item(1L, "Round Widget", BigDecimal.valueOf(2.99), "A widget that is round"));
+        index.put(new Item(2L, "Square Widget", BigDecimal.valueOf(1.99), "A widget that is square"));
+        index.put(new Item(3L, "Gadget", BigDecimal.TEN, "Works with any round widget"));
+    }
+
+    @Test
+    public void search_matchesWordsAndPrefixes() {
+        assertEquals(3, index.search("widget", 0, 10).getTotal());
+        assertEquals(3, index.search("WID", 0, 10).getTotal());
+        assertEquals(1, index.search("squ", 0, 10).getTotal());
+        assertEquals(0, index.search("sprocket", 0, 10).getTotal());
+    }
+
+    @Test
+    public void search_requiresEveryToken() {
+        List<Item> items = index.search("round widget", 0, 10).getItems();
+
+        assertEquals(2, items.size());
+        assertEquals(1L, items.get(0).getId());
+        assertEquals(3L, items.get(1).getId());
+    }
+
+    @Test
+    public void search_ranksNameMatchesFirst() {
+        List<Item> items = index.search("round", 0, 10).getItems();
+
+        assertEquals(1L, items.get(0).getId());
+    }
+
+    @Test
+    public void search_paginates() {
+        ItemSearchIndex.SearchResult first = index.search("widget", 0, 2);
+        ItemSearchIndex.SearchResult second = index.search("widget", 1, 2);
+
+        assertEquals(2, first.getItems().size());
+        assertEquals(1, second.getItems().size());
+        assertEquals(3, second.getTotal());
+    }
+
+    @Test
+    public void putAndRemove_keepIndexCurrent() {
+        index.put(new Item(2L, "Square Sprocket", BigDecimal.ONE, "A sprocket"));
+        assertEquals(1, index.search("sprocket", 0, 10).getTotal());
+        assertEquals(0, index.search("square widget", 0, 10).getTotal());
+
+        index.remove(1L);
+        assertTrue(index.search("round", 0, 10).getItems().stream().noneMatch(item -> item.getId() == 1L));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void search_matchesTokensLongerThanTheIndexedPrefixes() {
+        index.put(new Item(4L, "Thermoregulating Mug", BigDecimal.ONE, "Keeps coffee hot"));
+        index.put(new Item(5L, "Thermoregulator", BigDecimal.ONE, "Thermoregulates the room"));
+
+        assertEquals(2, index.search("thermoregul", 0, 10).getTotal());
+        List<Item> items = index.search("thermoregulat", 0, 10).getItems();
+        assertEquals(2, items.size());
+        assertEquals(4L, items.get(0).getId());
+        assertEquals(4L, index.search("thermoregulati", 0, 10).getItems().get(0).getId());
+        assertEquals(1, index.search("thermoregulati", 0, 10).getTotal());
+        assertEquals(5L, index.search("thermoregulate", 0, 10).getItems().get(0).getId());
+        assertEquals(1, index.search("thermoregulating", 0, 10).getTotal());
+        assertEquals(0, index.search("thermoregulatx", 0, 10).getTotal());
+    }
+
+    @Test
+    public void isSearchable_rejectsTokensShorterThanAPrefix() {
+        assertTrue(ItemSearchIndex.isSearchable("wi"));
+        assertFalse(ItemSearchIndex.isSearchable("w"));
+        assertFalse(ItemSearchIndex.isSearchable("round w"));
+        assertFalse(ItemSearchIndex.isSearchable(" - "));
+    }
+
+    @Test
+    public void repeatedUpdates_compactTombstones() {
+        for (int i = 0; i < 1000; i++) {
+            index.put(new Item(2L, "Square Widget " + i, BigDecimal.ONE, "A widget that is square"));
+        }
+
+        assertTrue(index.tombstones() < 64,
+                "tombstones kept: " + index.tombstones());
+        assertEquals(3, index.size());
+        assertEquals(1, index.search("square 999", 0, 10).getTotal());
+        assertEquals(0, index.search("square 998", 0, 10).getTotal());
+        assertEquals(1L, index.search("round", 0, 10).getItems().get(0).getId());
+    }
+
+    @Test
+    public void compaction_keepsWritesMadeWhileItRuns() {
+        List<Runnable> compactions = new ArrayList<>();
+        index = new ItemSearchIndex(mock(ItemRepository.class), compactions::add);
+        index.put(new Item(1L, "Round Widget", BigDecimal.valueOf(2.99), "A widget that is round"));
+        index.put(new Item(3L, "Gadget", BigDecimal.TEN, "Works with any round widget"));
+        for (int i = 0; compactions.isEmpty(); i++) {
+            index.put(new Item(2L, "Square Widget " + i, BigDecimal.ONE, "A widget that is square"));
+        }
+
+        index.put(new Item(2L, "Square Sprocket", BigDecimal.ONE, "A sprocket"));
+        index.put(new Item(4L, "Hex Bolt", BigDecimal.ONE, "Fits any sprocket"));
+        index.remove(1L);
+        assertEquals(2, index.search("sprocket", 0, 10).getTotal());
+        compactions.forEach(Runnable::run);
+
+        // Only the two items changed during the compaction were replaced in the compacted index.
+        assertEquals(2, index.tombstones());
+        assertEquals(3, index.size());
+        assertEquals(2L, index.search("sprocket", 0, 10).getItems().get(0).getId());
+        assertEquals(2, index.search("sprocket", 0, 10).getTotal());
+        assertEquals(0, index.search("square widget", 0, 10).getTotal());
+        assertEquals(1, index.search("round", 0, 10).getTotal());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.unit;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JWTTokenVerifierTest {
+
+    private final JWTTokenVerifier verifier = new JWTTokenVerifier(100);
+
+    @Test
+    public void verify_cachesValidToken() {
+        String token = token("testUser", System.currentTimeMillis() + 60_000, JWTTokenVerifier.ALGORITHM);
+
+        assertEquals("testUser", verifier.verify(token).getName());
+        assertEquals("testUser", verifier.verify(token).getName());
+        assertEquals(1, verifier.size());
+    }
+
+    @Test
+    public void verify_readsUserAndCartIds() {
+        String token = JWT.create()
+                .withSubject("testUser")
+                .withClaim(SecurityConstants.USER_ID_CLAIM, 7L)
+                .withClaim(SecurityConstants.CART_ID_CLAIM, 9L)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(JWTTokenVerifier.ALGORITHM);
+
+        AuthenticatedUser user = verifier.verify(token);
+
+        assertEquals(7L, user.getUserId());
+        assertEquals(9L, user.getCartId());
+    }
+
+    @Test
+    public void verify_tokenWithoutIds() {
+        String token = token("testUser", System.currentTimeMillis() + 60_000, JWTTokenVerifier.ALGORITHM);
+
+        assertNull(verifier.verify(token).getUserId());
+    }
+
+    @Test
+    public void verify_rejectsForgedToken() {
+        String token = token("testUser", System.currentTimeMillis() + 60_000, Algorithm.HMAC512("other"));
+
+        assertThrows(JWTVerificationException.class, () -> verifier.verify(token));
+        assertEquals(0, verifier.size());
+    }
+
+    @Test
+    public void verify_rejectsExpiredToken() {
+        String token = token("testUser", System.currentTimeMillis() - 1_000, JWTTokenVerifier.ALGORITHM);
+
+        assertThrows(TokenExpiredException.class, () -> verifier.verify(token));
+    }
+
+    private static String token(String subject, long expiresAt, Algorithm algorithm) {
+        return JWT.create().withSubject(subject).withExpiresAt(new Date(expiresAt)).sign(algorithm);
+    }
+}
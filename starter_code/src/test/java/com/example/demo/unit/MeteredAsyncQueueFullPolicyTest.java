@@ -0,0 +1,36 @@
+package com.example.demo.unit;
+
+import com.example.demo.logging.AsyncLoggingMetrics;
+import com.example.demo.logging.MeteredAsyncQueueFullPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MeteredAsyncQueueFullPolicyTest {
+
+    // Any id but the current thread's: the caller is an application thread, not the log writer.
+    private static final long BACKGROUND_THREAD_ID = -1;
+
+    @Test
+    public void fullBuffer_discardsUpToThresholdAndCountsEachRoute() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new AsyncLoggingMetrics().bindTo(registry);
+        double discardedBefore = overflow(registry, "discard");
+        double blockedBefore = overflow(registry, "block");
+
+        MeteredAsyncQueueFullPolicy policy = new MeteredAsyncQueueFullPolicy();
+
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD_ID, Level.DEBUG));
+        assertEquals(EventRoute.DISCARD, policy.getRoute(BACKGROUND_THREAD_ID, Level.INFO));
+        assertEquals(EventRoute.ENQUEUE, policy.getRoute(BACKGROUND_THREAD_ID, Level.WARN));
+        assertEquals(discardedBefore + 2, overflow(registry, "discard"));
+        assertEquals(blockedBefore + 1, overflow(registry, "block"));
+    }
+
+    private static double overflow(SimpleMeterRegistry registry, String action) {
+        return registry.get("logging.async.overflow").tag("action", action).functionCounter().count();
+    }
+}
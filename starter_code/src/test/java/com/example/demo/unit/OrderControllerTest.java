@@ -1,26 +1,43 @@
 package com.example.demo.unit;
 
+import com.example.demo.controllers.ItemController;
 import com.example.demo.controllers.OrderController;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.order.OrderIdempotencyRegistry;
+import com.example.demo.order.OrderSummary;
+import com.example.demo.order.OrderTicket;
+import com.example.demo.security.CurrentUserLookup;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 public class OrderControllerTest {
@@ -31,12 +48,17 @@ public class OrderControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CartRepository cartRepository;
+
     @Mock
     private OrderRepository orderRepository;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(orderController, "currentUserLookup",
+                new CurrentUserLookup(userRepository, cartRepository));
     }
 
     @Test
@@ -52,18 +74,45 @@ public class OrderControllerTest {
         user.setCart(cart);
         when(userRepository.findByUsername("testUser")).thenReturn(user);
 
-        ResponseEntity<UserOrder> response = orderController.submit("testUser");
+        ResponseEntity<UserOrder> response = orderController.submit("testUser", null);
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         verify(orderRepository, times(1)).save(any(UserOrder.class));
     }
 
+    @Test
+    public void submit_order_repeatedIdempotencyKey() {
+        ReflectionTestUtils.setField(orderController, "orderIdempotencyRegistry",
+                new OrderIdempotencyRegistry(Duration.ofMinutes(1), 100, ""));
+        User user = new User();
+        user.setCart(new Cart());
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+
+        ResponseEntity<UserOrder> first = orderController.submit("testUser", "key-1");
+        when(orderRepository.findByReference(first.getBody().getReference())).thenReturn(first.getBody());
+        ResponseEntity<UserOrder> retry = orderController.submit("testUser", "key-1");
+        ResponseEntity<UserOrder> other = orderController.submit("testUser", "key-2");
+
+        assertEquals(200, retry.getStatusCodeValue());
+        assertSame(first.getBody(), retry.getBody());
+        assertNotSame(first.getBody(), other.getBody());
+        verify(orderRepository, times(2)).save(any(UserOrder.class));
+    }
+
+    @Test
+    public void submit_order_invalidIdempotencyKey() {
+        ResponseEntity<UserOrder> response = orderController.submit("testUser", "has space");
+
+        assertEquals(400, response.getStatusCodeValue());
+        verify(orderRepository, never()).save(any(UserOrder.class));
+    }
+
     @Test
     public void submit_order_userNotFound() {
         when(userRepository.findByUsername("testUser")).thenReturn(null);
 
-        ResponseEntity<UserOrder> response = orderController.submit("testUser");
+        ResponseEntity<UserOrder> response = orderController.submit("testUser", null);
 
         assertEquals(404, response.getStatusCodeValue());
         verify(orderRepository, times(0)).save(any(UserOrder.class));
@@ -73,25 +122,114 @@ public class OrderControllerTest {
     public void getOrdersForUser_success() {
         User user = new User();
         List<UserOrder> orders = new ArrayList<>();
-        orders.add(new UserOrder());
+        UserOrder order = new UserOrder();
+        order.setId(1L);
+        orders.add(order);
         when(userRepository.findByUsername("testUser")).thenReturn(user);
-        when(orderRepository.findByUser(user)).thenReturn(orders);
+        when(orderRepository.findIdsByUserId(0L, Long.MAX_VALUE, PageRequest.of(0, 21)))
+                .thenReturn(Collections.singletonList(1L));
+        when(orderRepository.findDistinctByIdInOrderByIdDesc(Collections.singletonList(1L))).thenReturn(orders);
 
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("testUser");
+        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("testUser", Long.MAX_VALUE, 20);
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(1, response.getBody().size());
-        verify(orderRepository, times(1)).findByUser(user);
+        assertNull(response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void getOrdersForUser_nextCursor() {
+        User user = new User();
+        List<UserOrder> orders = new ArrayList<>();
+        for (long id = 5; id > 2; id--) {
+            UserOrder order = new UserOrder();
+            order.setId(id);
+            orders.add(order);
+        }
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(orderRepository.findIdsByUserId(0L, 6L, PageRequest.of(0, 3))).thenReturn(Arrays.asList(5L, 4L, 3L));
+        when(orderRepository.findDistinctByIdInOrderByIdDesc(Arrays.asList(5L, 4L, 3L))).thenReturn(orders);
+
+        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("testUser", 6L, 2);
+
+        assertEquals(2, response.getBody().size());
+        assertEquals("4", response.getHeaders().getFirst(ItemController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void getOrderSummariesForUser_success() {
+        User user = new User();
+        List<OrderSummary> summaries = new ArrayList<>();
+        summaries.add(new OrderSummary(1L, "ref", BigDecimal.TEN, 2, Instant.now()));
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(orderRepository.findSummariesByUserId(0L, Long.MAX_VALUE, PageRequest.of(0, 21))).thenReturn(summaries);
+
+        ResponseEntity<List<OrderSummary>> response =
+                orderController.getOrderSummariesForUser("testUser", Long.MAX_VALUE, 20);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, response.getBody().get(0).getLineCount());
+        verify(orderRepository, never()).findDistinctByIdInOrderByIdDesc(any());
+    }
+
+    @Test
+    public void getOrderForUser_notFound() {
+        User user = new User();
+        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(orderRepository.findByIdAndUserId(1L, 0L)).thenReturn(Optional.empty());
+
+        ResponseEntity<UserOrder> response = orderController.getOrderForUser("testUser", 1L);
+
+        assertEquals(404, response.getStatusCodeValue());
     }
 
     @Test
     public void getOrdersForUser_userNotFound() {
         when(userRepository.findByUsername("testUser")).thenReturn(null);
 
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("testUser");
+        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("testUser", Long.MAX_VALUE, 20);
+
+        assertEquals(404, response.getStatusCodeValue());
+        verify(orderRepository, times(0)).findIdsByUserId(anyLong(), any(), any());
+    }
+
+    @Test
+    public void getOrderStatus_completed() {
+        User user = new User();
+        user.setUsername("testUser");
+        UserOrder order = new UserOrder();
+        order.setId(7L);
+        order.setUser(user);
+        when(orderRepository.findByReference("ref")).thenReturn(order);
+
+        ResponseEntity<OrderTicket> response = orderController.getOrderStatus("ref", () -> "testUser");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(OrderTicket.Status.COMPLETED, response.getBody().getStatus());
+        assertEquals(7L, response.getBody().getOrderId());
+    }
+
+    @Test
+    public void getOrderStatus_notFound() {
+        when(orderRepository.findByReference("ref")).thenReturn(null);
+
+        ResponseEntity<OrderTicket> response = orderController.getOrderStatus("ref", () -> "testUser");
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void getOrderStatus_otherUsersOrder() {
+        User user = new User();
+        user.setUsername("testUser");
+        UserOrder order = new UserOrder();
+        order.setId(7L);
+        order.setUser(user);
+        when(orderRepository.findByReference("ref")).thenReturn(order);
+
+        ResponseEntity<OrderTicket> response = orderController.getOrderStatus("ref", () -> "otherUser");
 
         assertEquals(404, response.getStatusCodeValue());
-        verify(orderRepository, times(0)).findByUser(any(User.class));
     }
 }
@@ -0,0 +1,85 @@
+package com.example.demo.unit;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.order.OrderIdempotencyRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderIdempotencyRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reserve_returnsEarlierOutcome() {
+        OrderIdempotencyRegistry registry = new OrderIdempotencyRegistry(Duration.ofMinutes(1), 100, "");
+        UserOrder order = order("ref-1");
+        order.setId(7L);
+
+        assertNull(registry.reserve("alice", "key"));
+        assertTrue(registry.reserve("alice", "key").isInProgress());
+        assertNull(registry.reserve("bob", "key"));
+
+        registry.complete("alice", "key", order);
+        OrderIdempotencyRegistry.Outcome outcome = registry.reserve("alice", "key");
+        assertEquals("ref-1", outcome.getReference());
+        assertEquals(7L, outcome.getOrderId());
+    }
+
+    @Test
+    public void release_allowsAnotherAttempt() {
+        OrderIdempotencyRegistry registry = new OrderIdempotencyRegistry(Duration.ofMinutes(1), 100, "");
+
+        assertNull(registry.reserve("alice", "key"));
+        registry.release("alice", "key");
+
+        assertNull(registry.reserve("alice", "key"));
+    }
+
+    @Test
+    public void log_survivesRestartAndDropsExpiredEntries() throws Exception {
+        Path log = directory.resolve("idempotency.log");
+        Files.write(log, Collections.singletonList("1\tref-old\told-key alice"), StandardCharsets.UTF_8);
+
+        OrderIdempotencyRegistry first = new OrderIdempotencyRegistry(Duration.ofHours(1), 100, log.toString());
+        first.start();
+        first.reserve("alice", "key");
+        first.complete("alice", "key", order("ref-1"));
+        first.stop();
+
+        OrderIdempotencyRegistry second = new OrderIdempotencyRegistry(Duration.ofHours(1), 100, log.toString());
+        second.start();
+        OrderIdempotencyRegistry.Outcome outcome = second.reserve("alice", "key");
+        second.stop();
+
+        assertFalse(outcome.isInProgress());
+        assertEquals("ref-1", outcome.getReference());
+        assertNull(outcome.getOrderId());
+        assertNull(second.reserve("alice", "old-key"));
+        assertEquals(1, Files.readAllLines(log, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void isValidKey() {
+        assertTrue(OrderIdempotencyRegistry.isValidKey("3f1c2a9e-7d4b-4e1a-9c1d-0b2f6a8e5d11"));
+        assertFalse(OrderIdempotencyRegistry.isValidKey(""));
+        assertFalse(OrderIdempotencyRegistry.isValidKey("two words"));
+    }
+
+    private static UserOrder order(String reference) {
+        UserOrder order = new UserOrder();
+        order.setReference(reference);
+        return order;
+    }
+}